@@ -40,6 +40,8 @@ public class RFToolsDim {
 
         FMLJavaModLoadingContext.get().getModEventBus().addListener(setup::init);
         FMLJavaModLoadingContext.get().getModEventBus().addListener(modules::init);
+        FMLJavaModLoadingContext.get().getModEventBus().addListener(Config::onLoad);
+        FMLJavaModLoadingContext.get().getModEventBus().addListener(Config::onReload);
         MinecraftForge.EVENT_BUS.addListener(this::onJoinWorld);
 
         DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> {
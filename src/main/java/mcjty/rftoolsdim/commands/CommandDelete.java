@@ -0,0 +1,61 @@
+package mcjty.rftoolsdim.commands;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import mcjty.rftoolsdim.RFToolsDim;
+import mcjty.rftoolsdim.dimension.data.DimensionDeletionManager;
+import mcjty.rftoolsdim.dimension.data.PersistantDimensionManager;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.text.StringTextComponent;
+import net.minecraft.util.text.TextFormatting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommandDelete implements Command<CommandSource> {
+
+    private static final CommandDelete CMD = new CommandDelete();
+
+    public static ArgumentBuilder<CommandSource, ?> register(CommandDispatcher<CommandSource> dispatcher) {
+        return Commands.literal("delete")
+                .requires(cs -> cs.hasPermission(2))
+                .then(Commands.argument("name", StringArgumentType.string())
+                        .executes(CMD));
+    }
+
+    // A name ending with '*' deletes all dimensions starting with that prefix
+    @Override
+    public int run(CommandContext<CommandSource> context) throws CommandSyntaxException {
+        String name = context.getArgument("name", String.class);
+        CommandSource source = context.getSource();
+        PersistantDimensionManager mgr = PersistantDimensionManager.get(source.getLevel());
+        List<ResourceLocation> toDelete = new ArrayList<>();
+        if (name.endsWith("*")) {
+            String prefix = name.substring(0, name.length() - 1);
+            for (ResourceLocation id : mgr.getData().keySet()) {
+                if (id.getPath().startsWith(prefix)) {
+                    toDelete.add(id);
+                }
+            }
+        } else {
+            ResourceLocation id = new ResourceLocation(RFToolsDim.MODID, name);
+            if (mgr.getData(id) != null) {
+                toDelete.add(id);
+            }
+        }
+        if (toDelete.isEmpty()) {
+            source.sendFailure(new StringTextComponent("No dimensions found matching '" + name + "'!"));
+            return 0;
+        }
+        DimensionDeletionManager.get().delete(source.getServer(), toDelete,
+                message -> source.sendSuccess(new StringTextComponent(TextFormatting.YELLOW + message), false));
+        source.sendSuccess(new StringTextComponent(TextFormatting.YELLOW + "Deleting " + toDelete.size() + " dimension(s)"), false);
+        return 0;
+    }
+}
@@ -0,0 +1,107 @@
+package mcjty.rftoolsdim.commands;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import mcjty.rftoolsdim.RFToolsDim;
+import mcjty.rftoolsdim.dimension.data.DimensionData;
+import mcjty.rftoolsdim.dimension.data.PersistantDimensionManager;
+import mcjty.rftoolsdim.modules.dimlets.DimletConfig;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletIdMapping;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
+import mcjty.rftoolsdim.modules.dimlets.network.DimletSync;
+import mcjty.rftoolsdim.modules.knowledge.data.KnowledgeManager;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.text.StringTextComponent;
+import net.minecraft.util.text.TextFormatting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Reload the dimlet packages without restarting the server. The new dictionary is built on another thread
+ * and then replaces the current one on the server thread
+ */
+public class CommandReload implements Command<CommandSource> {
+
+    private static final CommandReload CMD = new CommandReload();
+
+    // The server that is reloading (null if none). This is tied to the server so that a reload that never
+    // finished because its server stopped doesn't block reloading on the next server (singleplayer)
+    private static final AtomicReference<MinecraftServer> reloading = new AtomicReference<>();
+
+    public static ArgumentBuilder<CommandSource, ?> register(CommandDispatcher<CommandSource> dispatcher) {
+        return Commands.literal("reload")
+                .requires(cs -> cs.hasPermission(2))
+                .executes(CMD);
+    }
+
+    @Override
+    public int run(CommandContext<CommandSource> context) throws CommandSyntaxException {
+        CommandSource source = context.getSource();
+        MinecraftServer server = source.getServer();
+        if (reloading.getAndSet(server) == server) {
+            source.sendFailure(new StringTextComponent("The dimlet packages are already being reloaded!"));
+            return 0;
+        }
+        DimletIdMapping mapping = DimletIdMapping.get(server.overworld());
+        List<DimletKey> reservedIds = new ArrayList<>(mapping.getKeys());
+        List<String> packages = new ArrayList<>(DimletConfig.DIMLET_PACKAGES.get());
+        long start = System.currentTimeMillis();
+        source.sendSuccess(new StringTextComponent(TextFormatting.YELLOW + "Reloading dimlet packages..."), false);
+
+        CompletableFuture.supplyAsync(() -> DimletDictionary.load(reservedIds, packages))
+                .whenCompleteAsync((dictionary, error) -> {
+                    reloading.compareAndSet(server, null);
+                    if (error != null) {
+                        RFToolsDim.setup.getLogger().error("Error reloading dimlet packages", error);
+                        source.sendFailure(new StringTextComponent("Error reloading dimlet packages: " + error.getMessage()));
+                        return;
+                    }
+                    List<ResourceLocation> affected = getAffectedDimensions(server, DimletDictionary.get(), dictionary);
+                    DimletDictionary.set(dictionary);
+                    mapping.update(dictionary.getKeysById());
+                    KnowledgeManager.get().rebuildKeys();
+                    for (ServerPlayerEntity player : server.getPlayerList().getPlayers()) {
+                        DimletSync.sendHash(player);
+                    }
+
+                    long time = System.currentTimeMillis() - start;
+                    RFToolsDim.setup.getLogger().info("Reloaded dimlet packages in " + time + "ms");
+                    source.sendSuccess(new StringTextComponent(TextFormatting.GREEN + "Reloaded " + dictionary.getDimlets().size()
+                            + " dimlets in " + time + "ms"), true);
+                    if (!affected.isEmpty()) {
+                        source.sendSuccess(new StringTextComponent(TextFormatting.YELLOW + "Dimensions using changed or removed dimlets "
+                                + "(existing terrain is not changed): "
+                                + affected.stream().map(ResourceLocation::getPath).collect(Collectors.joining(", "))), false);
+                    }
+                }, server);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static List<ResourceLocation> getAffectedDimensions(MinecraftServer server, DimletDictionary oldDictionary, DimletDictionary newDictionary) {
+        List<ResourceLocation> affected = new ArrayList<>();
+        for (DimensionData data : PersistantDimensionManager.get(server.overworld()).getData().values()) {
+            List<DimletKey> dimlets = new ArrayList<>(data.getDescriptor().getDimlets());
+            dimlets.addAll(data.getRandomizedDescriptor().getDimlets());
+            for (DimletKey key : dimlets) {
+                if (!Objects.equals(oldDictionary.getSettings(key), newDictionary.getSettings(key))) {
+                    affected.add(data.getId());
+                    break;
+                }
+            }
+        }
+        return affected;
+    }
+}
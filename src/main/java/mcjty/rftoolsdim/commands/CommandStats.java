@@ -0,0 +1,66 @@
+package mcjty.rftoolsdim.commands;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import mcjty.rftoolsdim.dimension.data.DimensionData;
+import mcjty.rftoolsdim.dimension.data.DimensionDeletionManager;
+import mcjty.rftoolsdim.dimension.data.PersistantDimensionManager;
+import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptorCache;
+import mcjty.rftoolsdim.dimension.tools.WorldGenExecutor;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.util.text.StringTextComponent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class CommandStats implements Command<CommandSource> {
+
+    private static final CommandStats CMD = new CommandStats();
+
+    public static ArgumentBuilder<CommandSource, ?> register(CommandDispatcher<CommandSource> dispatcher) {
+        return Commands.literal("stats")
+                .requires(cs -> cs.hasPermission(1))
+                .executes(CMD);
+    }
+
+    @Override
+    public int run(CommandContext<CommandSource> context) throws CommandSyntaxException {
+        CommandSource source = context.getSource();
+        List<WorldGenExecutor.Stats> stats = WorldGenExecutor.get().getStats();
+        source.sendSuccess(new StringTextComponent("Worldgen queues: " + stats.size()), false);
+        for (WorldGenExecutor.Stats s : stats) {
+            source.sendSuccess(new StringTextComponent("    " + s.getId().getPath()
+                    + ": queued " + s.getQueueDepth()
+                    + ", done " + s.getExecuted()
+                    + ", wait avg " + s.getAverageWaitMicros() + "us"
+                    + ", max " + s.getMaxWaitMicros() + "us"), false);
+        }
+
+        source.sendSuccess(new StringTextComponent("Compiled descriptors: " + CompiledDescriptorCache.getSize() + " cached"
+                + ", hits " + CompiledDescriptorCache.getHits()
+                + ", misses " + CompiledDescriptorCache.getMisses()), false);
+
+        // Compare the size of the binary descriptors with the json strings that were used before
+        PersistantDimensionManager mgr = PersistantDimensionManager.get(source.getServer().overworld());
+        long binarySize = 0;
+        long jsonSize = 0;
+        for (DimensionData data : mgr.getData().values()) {
+            binarySize += data.getDescriptor().toBinary().length + data.getRandomizedDescriptor().toBinary().length;
+            jsonSize += data.getDescriptor().compact().getBytes(StandardCharsets.UTF_8).length
+                    + data.getRandomizedDescriptor().compact().getBytes(StandardCharsets.UTF_8).length;
+        }
+        source.sendSuccess(new StringTextComponent("Dimensions: " + mgr.getData().size()
+                + ", loaded in " + mgr.getLoadTimeMicros() + "us"
+                + ", descriptors " + binarySize + " bytes (json " + jsonSize + " bytes)"), false);
+
+        for (DimensionDeletionManager.Job job : DimensionDeletionManager.get().getJobs()) {
+            String progress = job.getTotal() < 0 ? "counting files" : (job.getDeleted() + "/" + job.getTotal() + " files");
+            source.sendSuccess(new StringTextComponent("Deleting " + job.getId() + ": " + progress), false);
+        }
+        return 0;
+    }
+}
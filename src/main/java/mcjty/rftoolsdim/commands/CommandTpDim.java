@@ -9,13 +9,16 @@ import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import mcjty.lib.varia.TeleportationTools;
 import mcjty.rftoolsdim.RFToolsDim;
 import mcjty.rftoolsdim.dimension.data.DimensionManager;
+import mcjty.rftoolsdim.dimension.tools.ArrivalPreloader;
 import net.minecraft.command.CommandSource;
 import net.minecraft.command.Commands;
 import net.minecraft.entity.player.ServerPlayerEntity;
 import net.minecraft.util.Direction;
 import net.minecraft.util.RegistryKey;
 import net.minecraft.util.SharedConstants;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
 
 public class CommandTpDim implements Command<CommandSource> {
 
@@ -42,7 +45,11 @@ public class CommandTpDim implements Command<CommandSource> {
         }
 
         RegistryKey<World> id = world.dimension();
-        TeleportationTools.teleport(player, id, x, 200, z, Direction.NORTH);
+        ArrivalPreloader.get().whenReady((ServerWorld) world, new ChunkPos(x >> 4, z >> 4), () -> {
+            if (!player.hasDisconnected()) {
+                TeleportationTools.teleport(player, id, x, 200, z, Direction.NORTH);
+            }
+        });
         return 0;
     }
 }
@@ -18,6 +18,9 @@ public class ModCommands {
                         .then(CommandTpDim.register(dispatcher))
                         .then(CommandDump.register(dispatcher))
                         .then(CommandCreateConfig.register(dispatcher))
+                        .then(CommandStats.register(dispatcher))
+                        .then(CommandDelete.register(dispatcher))
+                        .then(CommandReload.register(dispatcher))
         );
 
         dispatcher.register(Commands.literal("dim").redirect(commands));
@@ -28,6 +28,14 @@ public class DimensionConfig {
     public static ForgeConfigSpec.DoubleValue RANDOMIZED_DIMLET_COST_FACTOR;
     public static ForgeConfigSpec.DoubleValue DIMLET_HUT_CHANCE;
 
+    public static ForgeConfigSpec.IntValue WORLDGEN_THREADS;
+    public static ForgeConfigSpec.IntValue WORLDGEN_THREAD_PRIORITY;
+
+    public static ForgeConfigSpec.BooleanValue FREEZE_UNPOWERED;
+
+    public static ForgeConfigSpec.IntValue PRELOAD_RADIUS;
+    public static ForgeConfigSpec.IntValue PRELOAD_TIMEOUT;
+
 
     public static void init() {
         SERVER_BUILDER.comment("Dimension settings").push(SUB_CATEGORY_DIMENSION);
@@ -89,6 +97,24 @@ public class DimensionConfig {
                 .comment("If true creating dimensions requires an owner dimlet")
                 .define("ownerDimletRequired", false);
 
+        WORLDGEN_THREADS = SERVER_BUILDER
+                .comment("The number of threads used for chunk generation of RFTools dimensions. Every dimension gets a fair share of these threads. If 0 the shared background executor of the server is used")
+                .defineInRange("worldgenThreads", 2, 0, 64);
+        WORLDGEN_THREAD_PRIORITY = SERVER_BUILDER
+                .comment("The thread priority of the worldgen threads for RFTools dimensions (1 is lowest, 10 is highest)")
+                .defineInRange("worldgenThreadPriority", 4, 1, 10);
+
+        FREEZE_UNPOWERED = SERVER_BUILDER
+                .comment("If true all entities, tile entities and random ticks in a dimension without power will be frozen until it gets power again. Players in a frozen dimension are not killed by the lack of power")
+                .define("freezeUnpowered", false);
+
+        PRELOAD_RADIUS = SERVER_BUILDER
+                .comment("Radius (in chunks) around the arrival point that is loaded before a player arrives in a new dimension or teleports to a dimension. Use 0 to disable preloading")
+                .defineInRange("preloadRadius", 2, 0, 8);
+        PRELOAD_TIMEOUT = SERVER_BUILDER
+                .comment("Maximum time (in ticks) to wait for the preloaded chunks before the arrival continues anyway")
+                .defineInRange("preloadTimeout", 200, 0, 20 * 60);
+
         SERVER_BUILDER.pop();
     }
 
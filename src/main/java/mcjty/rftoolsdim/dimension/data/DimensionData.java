@@ -1,32 +1,40 @@
 package mcjty.rftoolsdim.dimension.data;
 
-import mcjty.lib.varia.LevelTools;
+import mcjty.rftoolsdim.dimension.DimensionConfig;
 import mcjty.rftoolsdim.dimension.descriptor.DimensionDescriptor;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.world.World;
 
+import javax.annotation.Nullable;
+import java.util.UUID;
+
 public class DimensionData {
 
     private final ResourceLocation id;
     private final DimensionDescriptor descriptor;
     private final DimensionDescriptor randomizedDescriptor;
+    @Nullable private final UUID owner;     // The owner of the dimension builder that created this dimension
     private long energy;
+    private boolean frozen;
 
-    public DimensionData(ResourceLocation id, DimensionDescriptor descriptor, DimensionDescriptor randomizedDescriptor) {
+    public DimensionData(ResourceLocation id, DimensionDescriptor descriptor, DimensionDescriptor randomizedDescriptor, @Nullable UUID owner) {
         this.id = id;
         this.descriptor = descriptor;
         this.randomizedDescriptor = randomizedDescriptor;
+        this.owner = owner;
     }
 
     public DimensionData(CompoundNBT tag) {
         id = new ResourceLocation(tag.getString("id"));
         descriptor = new DimensionDescriptor();
-        descriptor.read(tag.getString("descriptor"));
+        descriptor.read(tag, "descriptor");
         energy = tag.getLong("energy");
+        frozen = tag.getBoolean("frozen");
+        owner = tag.hasUUID("owner") ? tag.getUUID("owner") : null;
         if (tag.contains("randomized")) {
             randomizedDescriptor = new DimensionDescriptor();
-            randomizedDescriptor.read(tag.getString("randomized"));
+            randomizedDescriptor.read(tag, "randomized");
         } else {
             randomizedDescriptor = DimensionDescriptor.EMPTY;
         }
@@ -34,9 +42,13 @@ public class DimensionData {
 
     public void write(CompoundNBT tag) {
         tag.putString("id", id.toString());
-        tag.putString("descriptor", descriptor.compact());
-        tag.putString("randomized", randomizedDescriptor.compact());
+        descriptor.write(tag, "descriptor");
+        randomizedDescriptor.write(tag, "randomized");
         tag.putLong("energy", energy);
+        tag.putBoolean("frozen", frozen);
+        if (owner != null) {
+            tag.putUUID("owner", owner);
+        }
     }
 
     public ResourceLocation getId() {
@@ -51,32 +63,25 @@ public class DimensionData {
         return randomizedDescriptor;
     }
 
+    @Nullable
+    public UUID getOwner() {
+        return owner;
+    }
+
     public long getEnergy() {
         return energy;
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     /// 'world' should be a valid world (or overworld). Can be null in case in which case the low power freeze will not happen
     public void setEnergy(World overworld, long energy) {
-        if (energy != this.energy) {
-            long old = this.energy;
-            this.energy = energy;
-            if (overworld != null) {
-//            if (PowerConfiguration.freezeUnpowered) { // @todo 1.16 config
-                if (old == 0 && energy > 0) {
-                    overworld = LevelTools.getLevel(overworld, id);
-                    if (overworld != null) {
-//                    RfToolsDimensionManager.unfreezeDimension(world);
-                    }
-                } else if (energy == 0) {
-                    overworld = LevelTools.getLevel(overworld, id);
-                    if (overworld != null) {
-//                    RfToolsDimensionManager.freezeDimension(world);
-                    }
-                }
-//            }
-            }
-
+        this.energy = energy;
+        if (overworld != null) {
+            // Also unfreeze dimensions without power if freezing was disabled in the config
+            frozen = energy <= 0 && DimensionConfig.FREEZE_UNPOWERED.get();
         }
     }
 }
-
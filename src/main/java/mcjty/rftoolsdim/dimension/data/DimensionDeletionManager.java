@@ -0,0 +1,297 @@
+package mcjty.rftoolsdim.dimension.data;
+
+import mcjty.lib.varia.LevelTools;
+import mcjty.lib.varia.TeleportationTools;
+import mcjty.rftoolsdim.RFToolsDim;
+import mcjty.rftoolsdim.dimension.tools.DimensionHelper;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Direction;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraft.world.storage.FolderName;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Deletes dimensions. Unregistering the dimension happens on the main thread. The dimension folder
+ * (region, data and poi) is deleted on a background thread. Pending deletions are recorded in a journal
+ * file in the world folder so that an interrupted deletion is resumed when the server starts again
+ */
+public class DimensionDeletionManager {
+
+    private static final DimensionDeletionManager INSTANCE = new DimensionDeletionManager();
+
+    public static DimensionDeletionManager get() {
+        return INSTANCE;
+    }
+
+    private static final String JOURNAL = "rftoolsdim_deletions.txt";
+
+    private ExecutorService executor = null;
+    private final Map<ResourceLocation, Job> jobs = new LinkedHashMap<>();
+    // Deletions that are queued to run at the end of the server tick (the feedback can be null)
+    private final Map<ResourceLocation, Consumer<String>> queued = new LinkedHashMap<>();
+    // In memory copy of the journal. Finished deletions only mark it dirty, it is written at most once per tick
+    private Set<ResourceLocation> journal = null;
+    private boolean journalDirty = false;
+
+    public static class Job {
+        private final ResourceLocation id;
+        private volatile int total = -1;
+        private volatile int deleted = 0;
+
+        public Job(ResourceLocation id) {
+            this.id = id;
+        }
+
+        public ResourceLocation getId() {
+            return id;
+        }
+
+        // -1 if the files were not counted yet
+        public int getTotal() {
+            return total;
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+    }
+
+    public boolean isBeingDeleted(ResourceLocation id) {
+        return jobs.containsKey(id) || queued.containsKey(id);
+    }
+
+    public Collection<Job> getJobs() {
+        return jobs.values();
+    }
+
+    /**
+     * Queue the deletion of a dimension. Use this while worlds are ticking (i.e. from a tile entity). The
+     * deletion is done at the end of the server tick (see tick())
+     */
+    public void queueDelete(ResourceLocation id, @Nullable Consumer<String> feedback) {
+        if (!jobs.containsKey(id)) {
+            queued.putIfAbsent(id, feedback);
+        }
+    }
+
+    /**
+     * Called at the end of the server tick when no world is ticking
+     */
+    public void tick(MinecraftServer server) {
+        if (!queued.isEmpty()) {
+            Map<ResourceLocation, Consumer<String>> todo = new LinkedHashMap<>(queued);
+            queued.clear();
+            deleteAll(server, todo);
+        }
+        if (journalDirty) {
+            writeJournal(server, getJournal(server));
+            journalDirty = false;
+        }
+    }
+
+    /**
+     * Delete dimensions. Must be called on the server thread and not while worlds are ticking. Feedback (if not null) is also
+     * called on the server thread (once for every dimension)
+     */
+    public void delete(MinecraftServer server, Collection<ResourceLocation> ids, @Nullable Consumer<String> feedback) {
+        Map<ResourceLocation, Consumer<String>> todo = new LinkedHashMap<>();
+        for (ResourceLocation id : ids) {
+            todo.put(id, feedback);
+        }
+        deleteAll(server, todo);
+    }
+
+    // All dimensions are done in one batch: the journal, the dimension registry and the level data
+    // are only written once no matter how many dimensions are deleted
+    private void deleteAll(MinecraftServer server, Map<ResourceLocation, Consumer<String>> todo) {
+        todo.keySet().removeAll(jobs.keySet());
+        if (todo.isEmpty()) {
+            return;
+        }
+        Set<ResourceLocation> journal = getJournal(server);
+        journal.addAll(todo.keySet());
+        writeJournal(server, journal);
+        journalDirty = false;
+
+        unregister(server, todo.keySet());
+
+        // Make sure the level data (which contains the list of dimensions) and our own data are saved before we
+        // start deleting files. If the server crashes after this point the journal will finish the job
+        ServerWorld overworld = server.overworld();
+        DimensionHelper.ANVIL_CONVERTER_FOR_ANVIL_FILE_FIELD.apply(server).saveDataTag(server.registryAccess(), server.getWorldData(),
+                server.getPlayerList().getSingleplayerData());
+        overworld.getDataStorage().save();
+
+        todo.forEach((id, feedback) -> deleteFolder(server, id, feedback));
+    }
+
+    /**
+     * Resume deletions that were interrupted by a server stop or crash
+     */
+    public void resume(MinecraftServer server) {
+        Set<ResourceLocation> ids = new LinkedHashSet<>(getJournal(server));
+        if (ids.isEmpty()) {
+            return;
+        }
+        RFToolsDim.setup.getLogger().info("Resuming deletion of " + ids.size() + " dimension(s)");
+        unregister(server, ids);
+        for (ResourceLocation id : ids) {
+            deleteFolder(server, id, null);
+        }
+    }
+
+    public void clear() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        jobs.clear();
+        queued.clear();
+        journal = null;
+        journalDirty = false;
+    }
+
+    private void unregister(MinecraftServer server, Collection<ResourceLocation> ids) {
+        List<RegistryKey<World>> keys = new ArrayList<>();
+        for (ResourceLocation id : ids) {
+            RegistryKey<World> key = LevelTools.getId(id);
+            ServerWorld world = server.getLevel(key);
+            if (world != null) {
+                evacuatePlayers(server, world);
+            }
+            keys.add(key);
+        }
+        DimensionHelper.unregisterWorlds(server, keys);
+        PersistantDimensionManager mgr = PersistantDimensionManager.get(server.overworld());
+        for (ResourceLocation id : ids) {
+            mgr.forget(id);
+            DimensionManager.get().forget(id);
+        }
+    }
+
+    private static void evacuatePlayers(MinecraftServer server, ServerWorld world) {
+        BlockPos spawn = server.overworld().getSharedSpawnPos();
+        for (ServerPlayerEntity player : new ArrayList<>(world.players())) {
+            TeleportationTools.teleport(player, World.OVERWORLD, spawn.getX(), spawn.getY(), spawn.getZ(), Direction.NORTH);
+        }
+    }
+
+    private void deleteFolder(MinecraftServer server, ResourceLocation id, @Nullable Consumer<String> feedback) {
+        Path folder = DimensionHelper.ANVIL_CONVERTER_FOR_ANVIL_FILE_FIELD.apply(server).getDimensionPath(LevelTools.getId(id)).toPath();
+        Job job = new Job(id);
+        jobs.put(id, job);
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "RFToolsDim-Deleter");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        executor.execute(() -> {
+            boolean ok = deleteFiles(folder, job);
+            server.execute(() -> {
+                jobs.remove(id);
+                String message;
+                if (ok) {
+                    // Written at the end of the tick
+                    getJournal(server).remove(id);
+                    journalDirty = true;
+                    message = "Dimension " + id + " deleted (" + job.getDeleted() + " files)";
+                } else {
+                    // The entry stays in the journal so we will try again after a restart
+                    message = "Dimension " + id + " deleted but its folder could not be completely wiped!";
+                }
+                RFToolsDim.setup.getLogger().info(message);
+                if (feedback != null) {
+                    feedback.accept(message);
+                }
+            });
+        });
+    }
+
+    private static boolean deleteFiles(Path folder, Job job) {
+        if (!Files.exists(folder)) {
+            job.total = 0;
+            return true;
+        }
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(folder)) {
+            // Reverse order so that files are deleted before the folder containing them
+            paths = stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        } catch (IOException e) {
+            RFToolsDim.setup.getLogger().error("Error listing files in " + folder, e);
+            return false;
+        }
+        job.total = paths.size();
+        boolean ok = true;
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+                job.deleted++;
+            } catch (IOException e) {
+                RFToolsDim.setup.getLogger().error("Error deleting " + path, e);
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    private static Path getJournalPath(MinecraftServer server) {
+        return server.getWorldPath(FolderName.ROOT).resolve(JOURNAL);
+    }
+
+    private Set<ResourceLocation> getJournal(MinecraftServer server) {
+        if (journal == null) {
+            journal = readJournal(server);
+        }
+        return journal;
+    }
+
+    private static Set<ResourceLocation> readJournal(MinecraftServer server) {
+        Path path = getJournalPath(server);
+        Set<ResourceLocation> ids = new LinkedHashSet<>();
+        if (Files.exists(path)) {
+            try {
+                for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    if (!line.trim().isEmpty()) {
+                        ids.add(new ResourceLocation(line.trim()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return ids;
+    }
+
+    private static void writeJournal(MinecraftServer server, Set<ResourceLocation> ids) {
+        Path path = getJournalPath(server);
+        try {
+            if (ids.isEmpty()) {
+                Files.deleteIfExists(path);
+            } else {
+                Files.write(path, ids.stream().map(ResourceLocation::toString).collect(Collectors.toList()), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
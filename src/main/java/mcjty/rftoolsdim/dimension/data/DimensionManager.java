@@ -6,14 +6,17 @@ import mcjty.lib.varia.LevelTools;
 import mcjty.rftoolsdim.RFToolsDim;
 import mcjty.rftoolsdim.dimension.TimeType;
 import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptor;
+import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptorCache;
 import mcjty.rftoolsdim.dimension.descriptor.DescriptorError;
 import mcjty.rftoolsdim.dimension.descriptor.DimensionDescriptor;
 import mcjty.rftoolsdim.dimension.terraintypes.BaseChunkGenerator;
 import mcjty.rftoolsdim.dimension.terraintypes.TerrainType;
+import mcjty.rftoolsdim.dimension.tools.ArrivalPreloader;
 import mcjty.rftoolsdim.dimension.tools.DimensionHelper;
 import net.minecraft.util.RegistryKey;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.Dimension;
 import net.minecraft.world.DimensionType;
@@ -27,6 +30,7 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Manages runtime handling of a dimension. That includes the compiled descriptors and creation of dimensions
@@ -65,6 +69,12 @@ public class DimensionManager {
         compiledDescriptorMap.clear();
     }
 
+    // Forget all runtime information about a dimension (used when a dimension is deleted)
+    public void forget(ResourceLocation id) {
+        platformHeightMap.remove(id);
+        compiledDescriptorMap.remove(id);
+    }
+
     /**
      * Get the dimension information for a given world
      */
@@ -132,6 +142,10 @@ public class DimensionManager {
         }
 
         ResourceLocation id = new ResourceLocation(RFToolsDim.MODID, name);
+        if (DimensionDeletionManager.get().isBeingDeleted(id)) {
+            // The folder of this dimension is still being deleted
+            return false;
+        }
 
         PersistantDimensionManager mgr = PersistantDimensionManager.get(world);
         DimensionData data = mgr.getData(id);
@@ -145,7 +159,8 @@ public class DimensionManager {
         return data == null;
     }
 
-    public ServerWorld createWorld(World world, String name, long seed, DimensionDescriptor descriptor, DimensionDescriptor randomizedDescriptor) {
+    // The owner is null for dimensions that are not created by a dimension builder
+    public ServerWorld createWorld(World world, String name, long seed, DimensionDescriptor descriptor, DimensionDescriptor randomizedDescriptor, @Nullable UUID owner) {
         ResourceLocation id = new ResourceLocation(RFToolsDim.MODID, name);
 
         PersistantDimensionManager mgr = PersistantDimensionManager.get(world);
@@ -161,16 +176,16 @@ public class DimensionManager {
             throw new RuntimeException("There is already a dimension with this descriptor: " + name);
         }
 
-        CompiledDescriptor compiledDescriptor = new CompiledDescriptor();
-        DescriptorError error = compiledDescriptor.compile(descriptor, randomizedDescriptor);
+        CompiledDescriptorCache.Result compiled = CompiledDescriptorCache.compileComplete(descriptor, randomizedDescriptor);
+        DescriptorError error = compiled.getError();
         if (!error.isOk()) {
             RFToolsDim.setup.getLogger().error("Error compiling dimension descriptor: " + error.getMessage());
             throw new RuntimeException("Error compiling dimension descriptor: " + error.getMessage());
         }
-        compiledDescriptor.complete();
+        CompiledDescriptor compiledDescriptor = compiled.getCompiledDescriptor();
         TerrainType terrainType = compiledDescriptor.getTerrainType();
 
-        DimensionSettings settings = new DimensionSettings(seed, descriptor.compact(), randomizedDescriptor.compact());
+        DimensionSettings settings = new DimensionSettings(seed, descriptor.encode(), randomizedDescriptor.encode());
 
         TimeType timeType = compiledDescriptor.getTimeType();
 
@@ -179,8 +194,11 @@ public class DimensionManager {
         ServerWorld result = DimensionHelper.getOrCreateWorld(world.getServer(), key,
                 (server, registryKey) -> new Dimension(() -> type, terrainType.getGeneratorSupplier().apply(server, settings)));
 
-        data = new DimensionData(id, descriptor, randomizedDescriptor);
+        data = new DimensionData(id, descriptor, randomizedDescriptor, owner);
         mgr.register(data);
+
+        // Start generating the area around the platform so that it is ready when the first player arrives
+        ArrivalPreloader.get().preload(result, new ChunkPos(0, 0));
         return result;
 
     }
@@ -206,7 +224,7 @@ public class DimensionManager {
             throw new UncheckedIOException(ex);
         }
 
-        createWorld(world, name, seed, descriptor, DimensionDescriptor.EMPTY);
+        createWorld(world, name, seed, descriptor, DimensionDescriptor.EMPTY, null);
         return null;
     }
 
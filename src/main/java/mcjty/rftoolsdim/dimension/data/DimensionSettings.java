@@ -4,6 +4,7 @@ import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import mcjty.rftoolsdim.RFToolsDim;
 import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptor;
+import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptorCache;
 import mcjty.rftoolsdim.dimension.descriptor.DescriptorError;
 import mcjty.rftoolsdim.dimension.descriptor.DimensionDescriptor;
 
@@ -48,13 +49,13 @@ public class DimensionSettings {
             descriptor.read(getDimlets());
             DimensionDescriptor randomizedDescriptor = new DimensionDescriptor();
             randomizedDescriptor.read(getRandomized());
-            compiledDescriptor = new CompiledDescriptor();
-            DescriptorError error = compiledDescriptor.compile(descriptor, randomizedDescriptor);
+            CompiledDescriptorCache.Result result = CompiledDescriptorCache.compileComplete(descriptor, randomizedDescriptor);
+            DescriptorError error = result.getError();
             if (!error.isOk()) {
                 RFToolsDim.setup.getLogger().error("Error compiling dimension descriptor: " + error.getMessage());
 //                throw new RuntimeException("Error compiling dimension descriptor: " + error.getMessage());
             }
-            compiledDescriptor.complete();
+            compiledDescriptor = result.getCompiledDescriptor();
         }
         return compiledDescriptor;
     }
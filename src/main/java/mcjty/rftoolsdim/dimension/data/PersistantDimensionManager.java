@@ -1,6 +1,7 @@
 package mcjty.rftoolsdim.dimension.data;
 
 import mcjty.lib.worlddata.AbstractWorldData;
+import mcjty.rftoolsdim.RFToolsDim;
 import mcjty.rftoolsdim.dimension.descriptor.DimensionDescriptor;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.nbt.INBT;
@@ -10,7 +11,9 @@ import net.minecraft.world.World;
 import net.minecraftforge.common.util.Constants;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -21,7 +24,9 @@ public class PersistantDimensionManager extends AbstractWorldData<PersistantDime
     private static final String NAME = "RFToolsDimensions";
 
     private final Map<ResourceLocation, DimensionData> data = new HashMap<>();
-    private final Map<DimensionDescriptor, DimensionData> dataByDescriptor = new HashMap<>();
+    // Indexed by the fingerprint of the descriptor. Usually there is only one dimension per fingerprint
+    private final Map<Long, List<DimensionData>> dataByFingerprint = new HashMap<>();
+    private long loadTimeMicros = 0;
 
     public PersistantDimensionManager(String name) {
         super(name);
@@ -37,17 +42,32 @@ public class PersistantDimensionManager extends AbstractWorldData<PersistantDime
     }
 
     public DimensionData getData(DimensionDescriptor descriptor) {
-        return dataByDescriptor.get(descriptor);
+        List<DimensionData> list = dataByFingerprint.get(descriptor.getFingerprint());
+        if (list == null) {
+            return null;
+        }
+        // Always compare the full descriptors. Different descriptors can have the same fingerprint
+        for (DimensionData dd : list) {
+            if (dd.getDescriptor().equals(descriptor)) {
+                return dd;
+            }
+        }
+        return null;
     }
 
     public Map<ResourceLocation, DimensionData> getData() {
         return data;
     }
 
+    // Time it took to decode all dimensions when this data was loaded
+    public long getLoadTimeMicros() {
+        return loadTimeMicros;
+    }
+
     // No error checking! It is assumed the caller checks before!
     public void register(DimensionData dd) {
         data.put(dd.getId(), dd);
-        dataByDescriptor.put(dd.getDescriptor(), dd);
+        index(dd);
         setDirty();
     }
 
@@ -55,21 +75,37 @@ public class PersistantDimensionManager extends AbstractWorldData<PersistantDime
         DimensionData dd = data.get(key);
         data.remove(key);
         if (dd != null) {
-            dataByDescriptor.remove(dd.getDescriptor());
+            long fingerprint = dd.getDescriptor().getFingerprint();
+            List<DimensionData> list = dataByFingerprint.get(fingerprint);
+            if (list != null) {
+                list.remove(dd);
+                if (list.isEmpty()) {
+                    dataByFingerprint.remove(fingerprint);
+                }
+            }
         }
         setDirty();
     }
 
+    private void index(DimensionData dd) {
+        dataByFingerprint.computeIfAbsent(dd.getDescriptor().getFingerprint(), k -> new ArrayList<>(1)).add(dd);
+    }
+
     @Override
     public void load(CompoundNBT tag) {
+        long start = System.nanoTime();
         ListNBT dimensions = tag.getList("dimensions", Constants.NBT.TAG_COMPOUND);
         data.clear();
-        dataByDescriptor.clear();
+        dataByFingerprint.clear();
         for (INBT inbt : dimensions) {
             CompoundNBT dtag = (CompoundNBT) inbt;
             DimensionData dd = new DimensionData(dtag);
             data.put(dd.getId(), dd);
-            dataByDescriptor.put(dd.getDescriptor(), dd);
+            index(dd);
+        }
+        loadTimeMicros = (System.nanoTime() - start) / 1000;
+        if (!data.isEmpty()) {
+            RFToolsDim.setup.getLogger().info("Loaded " + data.size() + " dimensions in " + loadTimeMicros + "us");
         }
     }
 
@@ -29,14 +29,14 @@ import static mcjty.rftoolsdim.dimension.descriptor.DescriptorError.ERROR;
 public class CompiledDescriptor {
 
     private TerrainType terrainType = null;
-    private final Set<AttributeType> attributeTypes = EnumSet.noneOf(AttributeType.class);
-    private final List<BlockState> baseBlocks = new ArrayList<>();
+    private Set<AttributeType> attributeTypes = EnumSet.noneOf(AttributeType.class);
+    private List<BlockState> baseBlocks = new ArrayList<>();
     private BlockState baseLiquid = null;
 
-    private final Set<AdminDimletType> adminDimletTypes = EnumSet.noneOf(AdminDimletType.class);
-    private final Set<CompiledFeature> features = new HashSet<>();
+    private Set<AdminDimletType> adminDimletTypes = EnumSet.noneOf(AdminDimletType.class);
+    private Set<CompiledFeature> features = new HashSet<>();
     private BiomeControllerType biomeControllerType = null;
-    private final List<ResourceLocation> biomes = new ArrayList<>();
+    private List<ResourceLocation> biomes = new ArrayList<>();
     private TimeType timeType = null;
 
     private int createCostPerTick = 0;
@@ -115,6 +115,20 @@ public class CompiledDescriptor {
         }
     }
 
+    /**
+     * Make this compiled descriptor read-only so that it can be shared (see CompiledDescriptorCache)
+     */
+    void freeze() {
+        attributeTypes = Collections.unmodifiableSet(attributeTypes);
+        baseBlocks = Collections.unmodifiableList(baseBlocks);
+        adminDimletTypes = Collections.unmodifiableSet(adminDimletTypes);
+        for (CompiledFeature feature : features) {
+            feature.freeze();
+        }
+        features = Collections.unmodifiableSet(features);
+        biomes = Collections.unmodifiableList(biomes);
+    }
+
     private DescriptorError handleDimlet(List<BlockState> collectedBlocks, List<BlockState> collectedFluids, Set<AttributeType> collectedAttributes, DimletKey dimlet) {
         DimletSettings settings = DimletDictionary.get().getSettings(dimlet);
         if (settings != null) {
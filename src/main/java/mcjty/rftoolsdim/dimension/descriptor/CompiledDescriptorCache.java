@@ -0,0 +1,151 @@
+package mcjty.rftoolsdim.dimension.descriptor;
+
+import com.google.common.collect.ImmutableList;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of compiled descriptors shared by all threads. Descriptors are keyed by their dimlets
+ * (in order since the order of dimlets matters). The cached compiled descriptors are frozen so they
+ * can't be modified. Only the most recently used descriptors are kept. This cache has to be cleared
+ * when the dimlet dictionary or the server config changes
+ */
+public class CompiledDescriptorCache {
+
+    private static final int MAX_ENTRIES = 512;
+
+    // Access ordered so that the least recently used descriptor is removed first. Guarded by itself
+    private static final Map<Key, Result> CACHE = new LinkedHashMap<Key, Result>(16, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Incremented by clear(). A result that was compiled while the cache was cleared (so possibly with the old
+    // dimlet dictionary) is not added to the cache. Guarded by CACHE
+    private static long generation = 0;
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    public static class Result {
+        private final DescriptorError error;
+        private final CompiledDescriptor compiledDescriptor;
+
+        public Result(DescriptorError error, CompiledDescriptor compiledDescriptor) {
+            this.error = error;
+            this.compiledDescriptor = compiledDescriptor;
+        }
+
+        public DescriptorError getError() {
+            return error;
+        }
+
+        public CompiledDescriptor getCompiledDescriptor() {
+            return compiledDescriptor;
+        }
+    }
+
+    private static class Key {
+        private final List<DimletKey> dimlets;
+        private final List<DimletKey> randomized;
+        private final boolean complete;
+
+        public Key(DimensionDescriptor descriptor, DimensionDescriptor randomizedDescriptor, boolean complete) {
+            this.dimlets = ImmutableList.copyOf(descriptor.getDimlets());
+            this.randomized = ImmutableList.copyOf(randomizedDescriptor.getDimlets());
+            this.complete = complete;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return complete == key.complete && dimlets.equals(key.dimlets) && randomized.equals(key.randomized);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimlets, randomized, complete);
+        }
+    }
+
+    /**
+     * Compile a descriptor. The result is not completed (i.e. missing terrain, time, ... will be null)
+     */
+    public static Result compile(DimensionDescriptor descriptor, DimensionDescriptor randomizedDescriptor) {
+        return get(new Key(descriptor, randomizedDescriptor, false));
+    }
+
+    /**
+     * Compile a descriptor and complete it with defaults for everything that is missing
+     */
+    public static Result compileComplete(DimensionDescriptor descriptor, DimensionDescriptor randomizedDescriptor) {
+        return get(new Key(descriptor, randomizedDescriptor, true));
+    }
+
+    private static Result get(Key key) {
+        Result result;
+        long gen;
+        synchronized (CACHE) {
+            result = CACHE.get(key);
+            gen = generation;
+        }
+        if (result != null) {
+            HITS.incrementAndGet();
+            return result;
+        }
+        MISSES.incrementAndGet();
+        // Compiling twice in case of a race is harmless so we don't hold the lock while compiling
+        result = compile(key);
+        synchronized (CACHE) {
+            if (gen != generation) {
+                return result;
+            }
+            Result existing = CACHE.putIfAbsent(key, result);
+            return existing == null ? result : existing;
+        }
+    }
+
+    private static Result compile(Key key) {
+        DimensionDescriptor descriptor = new DimensionDescriptor();
+        descriptor.getDimlets().addAll(key.dimlets);
+        DimensionDescriptor randomizedDescriptor = new DimensionDescriptor();
+        randomizedDescriptor.getDimlets().addAll(key.randomized);
+        CompiledDescriptor compiledDescriptor = new CompiledDescriptor();
+        DescriptorError error = compiledDescriptor.compile(descriptor, randomizedDescriptor);
+        if (key.complete) {
+            compiledDescriptor.complete();
+        }
+        compiledDescriptor.freeze();
+        return new Result(error, compiledDescriptor);
+    }
+
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            generation++;
+        }
+    }
+
+    public static int getSize() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+}
@@ -4,18 +4,24 @@ import mcjty.rftoolsdim.dimension.features.FeatureType;
 import net.minecraft.block.BlockState;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class CompiledFeature {
 
     private final FeatureType featureType;
-    private final List<BlockState> blocks = new ArrayList<>();
-    private final List<BlockState> fluids = new ArrayList<>();
+    private List<BlockState> blocks = new ArrayList<>();
+    private List<BlockState> fluids = new ArrayList<>();
 
     public CompiledFeature(FeatureType featureType) {
         this.featureType = featureType;
     }
 
+    void freeze() {
+        blocks = Collections.unmodifiableList(blocks);
+        fluids = Collections.unmodifiableList(fluids);
+    }
+
     public FeatureType getFeatureType() {
         return featureType;
     }
@@ -1,17 +1,19 @@
 package mcjty.rftoolsdim.dimension.descriptor;
 
 import com.google.gson.*;
+import io.netty.buffer.Unpooled;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletType;
 import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.network.PacketBuffer;
 import net.minecraft.util.text.StringTextComponent;
 import net.minecraft.util.text.TextFormatting;
+import net.minecraftforge.common.util.Constants;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.Random;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 
 /**
  * This class describes a dimension by its list of dimlets. It can be used to generate DimensionInformation objects
@@ -28,23 +30,98 @@ import java.util.Random;
  */
 public class DimensionDescriptor {
 
-    private final List<DimletKey> dimlets = new ArrayList<>();
+    private final DimletList dimlets = new DimletList();
+    // Cached fingerprint. It is only valid as long as the list of dimlets is not modified
+    private long fingerprint = 0;
+    private int fingerprintModCount = -1;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
 
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
     private static final Gson GSON_COMPACT = new GsonBuilder().disableHtmlEscaping().create();
 
+    // Version of the binary format. The first byte of the binary form
+    private static final byte BINARY_VERSION = 1;
+
     public static final DimensionDescriptor EMPTY = new DimensionDescriptor();
 
+    // A list that counts all modifications (ArrayList doesn't count set()) so that we know when the fingerprint is stale
+    private static class DimletList extends ArrayList<DimletKey> {
+        @Override
+        public DimletKey set(int index, DimletKey element) {
+            modCount++;
+            return super.set(index, element);
+        }
+
+        public int getModCount() {
+            return modCount;
+        }
+    }
+
     public List<DimletKey> getDimlets() {
         return dimlets;
     }
 
-    public void read(String json) {
-        JsonParser parser = new JsonParser();
-        JsonElement root = parser.parse(json);
-        JsonArray object = root.getAsJsonArray();
+    /// Read a descriptor in either json form or in the base64 encoded binary form (see encode())
+    public void read(String data) {
+        if (data.isEmpty()) {
+            dimlets.clear();
+        } else if (data.trim().startsWith("[")) {
+            JsonParser parser = new JsonParser();
+            JsonElement root = parser.parse(data);
+            JsonArray object = root.getAsJsonArray();
+
+            read(object);
+        } else {
+            readBinary(Base64.getDecoder().decode(data));
+        }
+    }
+
+    /// Read a descriptor from NBT. Older worlds and items have the descriptor as a json string
+    public void read(CompoundNBT tag, String key) {
+        if (tag.getTagType(key) == Constants.NBT.TAG_BYTE_ARRAY) {
+            readBinary(tag.getByteArray(key));
+        } else {
+            read(tag.getString(key));
+        }
+    }
+
+    public void write(CompoundNBT tag, String key) {
+        tag.putByteArray(key, toBinary());
+    }
+
+    public void readBinary(byte[] data) {
+        PacketBuffer buf = new PacketBuffer(Unpooled.wrappedBuffer(data));
+        byte version = buf.readByte();
+        if (version != BINARY_VERSION) {
+            throw new IllegalStateException("Unknown dimension descriptor version " + version + "!");
+        }
+        dimlets.clear();
+        int size = buf.readVarInt();
+        for (int i = 0 ; i < size ; i++) {
+            DimletType type = DimletType.values()[buf.readByte()];
+            dimlets.add(new DimletKey(type, buf.readUtf(32767)));
+        }
+    }
+
+    // The binary form: version, number of dimlets and for every dimlet the type and the name
+    public byte[] toBinary() {
+        PacketBuffer buf = new PacketBuffer(Unpooled.buffer());
+        buf.writeByte(BINARY_VERSION);
+        buf.writeVarInt(dimlets.size());
+        for (DimletKey dimlet : dimlets) {
+            buf.writeByte(dimlet.getType().ordinal());
+            buf.writeUtf(dimlet.getKey());
+        }
+        byte[] data = new byte[buf.readableBytes()];
+        buf.readBytes(data);
+        return data;
+    }
 
-        read(object);
+    // The binary form as a string. This is what is stored in the dimension settings
+    public String encode() {
+        return Base64.getEncoder().encodeToString(toBinary());
     }
 
     public void read(JsonArray object) {
@@ -92,6 +169,34 @@ public class DimensionDescriptor {
         return GSON_COMPACT.toJson(root);
     }
 
+    /// A stable 64-bit fingerprint (FNV-1a) of this descriptor. Two equal descriptors always have
+    /// the same fingerprint. The type short name is used so that it doesn't depend on the order of the types
+    public long getFingerprint() {
+        if (fingerprintModCount != dimlets.getModCount()) {
+            long hash = FNV_OFFSET;
+            for (DimletKey dimlet : dimlets) {
+                hash = fnv(hash, dimlet.getType().getShortName().getBytes(StandardCharsets.UTF_8));
+                hash = fnv(hash, dimlet.getKey().getBytes(StandardCharsets.UTF_8));
+            }
+            fingerprint = hash;
+            fingerprintModCount = dimlets.getModCount();
+        }
+        return fingerprint;
+    }
+
+    private static long fnv(long hash, byte[] data) {
+        // Length prefix so that (a, bc) and (ab, c) give a different result
+        for (int i = 0 ; i < 4 ; i++) {
+            hash ^= (data.length >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        for (byte b : data) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
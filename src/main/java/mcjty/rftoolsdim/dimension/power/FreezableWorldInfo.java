@@ -0,0 +1,63 @@
+package mcjty.rftoolsdim.dimension.power;
+
+import net.minecraft.world.GameRules;
+import net.minecraft.world.storage.DerivedWorldInfo;
+import net.minecraft.world.storage.IServerConfiguration;
+import net.minecraft.world.storage.IServerWorldInfo;
+
+/**
+ * The world info of an RFTools dimension. It is the same as the DerivedWorldInfo that vanilla uses
+ * for all dimensions except the overworld but while the dimension is frozen it returns game rules
+ * in which random ticks are disabled. This only affects this world: the shared game rules (which
+ * are saved in level.dat) are never changed
+ */
+public class FreezableWorldInfo extends DerivedWorldInfo {
+
+    private GameRules frozenRules = null;
+    private volatile boolean frozen = false;
+
+    public FreezableWorldInfo(IServerConfiguration worldData, IServerWorldInfo wrapped) {
+        super(worldData, wrapped);
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+    }
+
+    @Override
+    public GameRules getGameRules() {
+        GameRules rules = super.getGameRules();
+        if (!frozen) {
+            return rules;
+        }
+        if (frozenRules == null) {
+            frozenRules = new FrozenGameRules(rules);
+        }
+        return frozenRules;
+    }
+
+    /**
+     * Game rules that return the shared rules for everything except the random tick speed (which is 0).
+     * Changing a rule through these changes the shared rule
+     */
+    private static class FrozenGameRules extends GameRules {
+        private final GameRules shared;
+
+        public FrozenGameRules(GameRules shared) {
+            this.shared = shared;
+            super.getRule(RULE_RANDOMTICKING).set(0, null);
+        }
+
+        @Override
+        public <T extends RuleValue<T>> T getRule(RuleKey<T> key) {
+            if (key == RULE_RANDOMTICKING) {
+                return super.getRule(key);
+            }
+            return shared.getRule(key);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package mcjty.rftoolsdim.dimension.power;
+
+import mcjty.rftoolsdim.dimension.DimensionConfig;
+import mcjty.rftoolsdim.dimension.data.DimensionData;
+import mcjty.rftoolsdim.dimension.data.PersistantDimensionManager;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+
+import java.util.*;
+
+/**
+ * Handles frozen (unpowered) dimensions. In a frozen dimension tile entities, random ticks and
+ * all living entities except players are not ticked. Players keep ticking (so they can still leave)
+ * but nothing around them can move or hurt them.
+ */
+public class FreezeHandler {
+
+    private final Set<RegistryKey<World>> frozenWorlds = new HashSet<>();
+    // Tickable tile entities that we removed from the world while it is frozen
+    private final Map<RegistryKey<World>, List<TileEntity>> frozenTileEntities = new HashMap<>();
+
+    public boolean isFrozen(World world) {
+        return frozenWorlds.contains(world.dimension());
+    }
+
+    public boolean shouldFreeze(LivingEntity entity) {
+        return !(entity instanceof PlayerEntity) && !entity.level.isClientSide && isFrozen(entity.level);
+    }
+
+    public void startWorldTick(ServerWorld world) {
+        RegistryKey<World> key = world.dimension();
+        DimensionData data = PersistantDimensionManager.get(world).getData(key.location());
+        // Dimensions that were frozen before freezing was disabled in the config are no longer frozen
+        if (data != null && data.isFrozen() && DimensionConfig.FREEZE_UNPOWERED.get()) {
+            frozenWorlds.add(key);
+            setRandomTicksFrozen(world, true);
+
+            // Tile entities that were added since the previous tick are moved out of the ticking list too
+            if (!world.tickableBlockEntities.isEmpty()) {
+                frozenTileEntities.computeIfAbsent(key, k -> new ArrayList<>()).addAll(world.tickableBlockEntities);
+                world.tickableBlockEntities.clear();
+            }
+        } else if (frozenWorlds.remove(key)) {
+            unfreeze(world);
+        }
+    }
+
+    // Random ticks are disabled through the game rules of this world only (see FreezableWorldInfo)
+    private static void setRandomTicksFrozen(ServerWorld world, boolean frozen) {
+        if (world.getLevelData() instanceof FreezableWorldInfo) {
+            ((FreezableWorldInfo) world.getLevelData()).setFrozen(frozen);
+        }
+    }
+
+    private void unfreeze(ServerWorld world) {
+        setRandomTicksFrozen(world, false);
+        List<TileEntity> tileEntities = frozenTileEntities.remove(world.dimension());
+        if (tileEntities == null) {
+            return;
+        }
+        Set<TileEntity> ticking = new HashSet<>(world.tickableBlockEntities);
+        for (TileEntity te : tileEntities) {
+            // Skip tile entities that were removed or unloaded while the world was frozen
+            if (!te.isRemoved() && world.isLoaded(te.getBlockPos()) && world.getBlockEntity(te.getBlockPos()) == te && ticking.add(te)) {
+                world.tickableBlockEntities.add(te);
+            }
+        }
+    }
+
+    public void unloadWorld(World world) {
+        frozenWorlds.remove(world.dimension());
+        frozenTileEntities.remove(world.dimension());
+    }
+
+    public void clear() {
+        frozenWorlds.clear();
+        frozenTileEntities.clear();
+    }
+}
@@ -92,14 +92,14 @@ public class PowerHandler {
             // Power handling.
             long power;
             ServerWorld world = LevelTools.getLevel(overworld, entry.getKey());
-            CompiledDescriptor compiledDescriptor = DimensionManager.get().getCompiledDescriptor(world);
+            CompiledDescriptor compiledDescriptor = DimensionManager.get().getCompiledDescriptor(overworld, entry.getKey());
 
             if (compiledDescriptor != null) {
 
                 // If there is an activity probe we only drain power if the dimension is loaded (a player is there or a chunkloader)
                 // @todo 1.16
 //            if (!information.isCheater() && ((world != null && world.getChunkProvider().getLoadedChunkCount() > 0) || information.getProbeCounter() == 0)) {
-                power = handlePowerDimension(doEffects, world, entry.getValue(), compiledDescriptor);
+                power = handlePowerDimension(doEffects, overworld, world, entry.getValue(), compiledDescriptor);
 //            } else {
 //                power = dimensionStorage.getEnergyLevel(id);
 //            }
@@ -116,7 +116,7 @@ public class PowerHandler {
         mgr.save();
     }
 
-    private long handlePowerDimension(boolean doEffects, ServerWorld world, DimensionData data, CompiledDescriptor compiledDescriptor) {
+    private long handlePowerDimension(boolean doEffects, World overworld, ServerWorld world, DimensionData data, CompiledDescriptor compiledDescriptor) {
         int cost = compiledDescriptor.getActualPowerCost();
 //        if (PowerConfiguration.dimensionDifficulty != -1) {   // @todo 1.16 config
 //        }
@@ -129,7 +129,7 @@ public class PowerHandler {
 
         handleLowPower(world, power, doEffects, cost);
 
-        data.setEnergy(world, power);
+        data.setEnergy(overworld, power);
 
         return power;
     }
@@ -187,7 +187,13 @@ public class PowerHandler {
                 // @todo 1.16
 //                if (PowerConfiguration.dimensionDifficulty >= 1) {
                 for (PlayerEntity player : players) {
-                    if (!PhasedFieldGenerator.checkValidPhasedFieldGenerator(player, true, phasedCost)) {
+                    if (DimensionConfig.FREEZE_UNPOWERED.get()) {
+                        // The dimension is frozen. Players are safe but they can't do much
+                        if (doEffects) {
+                            player.addEffect(new EffectInstance(Effects.MOVEMENT_SLOWDOWN, EFFECTS_MAX * MAXTICKS, 2, true, true));
+                            player.addEffect(new EffectInstance(Effects.DIG_SLOWDOWN, EFFECTS_MAX * MAXTICKS, 2, true, true));
+                        }
+                    } else if (!PhasedFieldGenerator.checkValidPhasedFieldGenerator(player, true, phasedCost)) {
                         player.hurt(new DamageSourcePowerLow("powerLow"), 1000000.0f);
                     } else {
                         if (doEffects && DimensionConfig.PHASED_FIELD_GENERATOR_DEBUF.get()) {
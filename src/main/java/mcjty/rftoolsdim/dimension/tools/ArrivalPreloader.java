@@ -0,0 +1,130 @@
+package mcjty.rftoolsdim.dimension.tools;
+
+import mcjty.rftoolsdim.dimension.DimensionConfig;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerChunkProvider;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraft.world.server.TicketType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Loads (and generates) the chunks around an arrival point asynchronously before a player arrives.
+ * Actions that are waiting for the chunks are run on the server thread as soon as all chunks
+ * are ready or when the timeout expires
+ */
+public class ArrivalPreloader {
+
+    private static final ArrivalPreloader INSTANCE = new ArrivalPreloader();
+
+    public static ArrivalPreloader get() {
+        return INSTANCE;
+    }
+
+    // The ticket expires by itself so we don't have to remove it
+    private static final TicketType<ChunkPos> ARRIVAL_TICKET = TicketType.create("rftoolsdim_arrival", Comparator.comparingLong(ChunkPos::toLong), 20 * 60);
+
+    private final List<Request> requests = new ArrayList<>();
+
+    private static class Request {
+        private final ServerWorld world;
+        private final ChunkPos center;
+        private final int radius;
+        private final long deadline;
+        private final Runnable action;
+
+        public Request(ServerWorld world, ChunkPos center, int radius, long deadline, Runnable action) {
+            this.world = world;
+            this.center = center;
+            this.radius = radius;
+            this.deadline = deadline;
+            this.action = action;
+        }
+
+        // Must be called on the server thread
+        public boolean isReady() {
+            ServerChunkProvider chunkSource = world.getChunkSource();
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    // hasChunk() only tells us there is a chunk holder (which is true as soon as the ticket
+                    // is processed). getChunkNow() only returns the chunk when it is completely generated
+                    if (chunkSource.getChunkNow(center.x + dx, center.z + dz) == null) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Start loading the chunks around the given chunk
+     */
+    public void preload(ServerWorld world, ChunkPos center) {
+        int radius = DimensionConfig.PRELOAD_RADIUS.get();
+        if (radius > 0) {
+            world.getChunkSource().addRegionTicket(ARRIVAL_TICKET, center, radius, center);
+        }
+    }
+
+    /**
+     * Start loading the chunks around the given chunk and run the action when they are ready
+     * (or when it takes too long)
+     */
+    public void whenReady(ServerWorld world, ChunkPos center, Runnable action) {
+        int radius = DimensionConfig.PRELOAD_RADIUS.get();
+        if (radius <= 0) {
+            action.run();
+            return;
+        }
+        preload(world, center);
+        long deadline = world.getGameTime() + DimensionConfig.PRELOAD_TIMEOUT.get();
+        requests.add(new Request(world, center, radius, deadline, action));
+    }
+
+    public void tick() {
+        if (requests.isEmpty()) {
+            return;
+        }
+        // Run the actions after removing them because an action may schedule new requests
+        List<Request> done = new ArrayList<>();
+        Iterator<Request> iterator = requests.iterator();
+        while (iterator.hasNext()) {
+            Request request = iterator.next();
+            if (request.world.getGameTime() >= request.deadline || request.isReady()) {
+                iterator.remove();
+                done.add(request);
+            }
+        }
+        for (Request request : done) {
+            request.action.run();
+        }
+    }
+
+    /**
+     * Run all waiting actions now. This is used when the server stops (before the worlds are saved) because
+     * the requests are not persisted and actions like placing the matter receiver of a new dimension must not be lost
+     */
+    public void flush() {
+        List<Request> done = new ArrayList<>(requests);
+        requests.clear();
+        for (Request request : done) {
+            request.action.run();
+        }
+    }
+
+    /**
+     * Forget the requests for a world that is unloaded or deleted
+     */
+    public void unloadWorld(World world) {
+        requests.removeIf(request -> request.world == world);
+    }
+
+    public void clear() {
+        requests.clear();
+    }
+}
@@ -2,28 +2,37 @@ package mcjty.rftoolsdim.dimension.tools;
 
 import com.google.common.collect.ImmutableList;
 import com.mojang.serialization.Lifecycle;
+import mcjty.rftoolsdim.RFToolsDim;
 import mcjty.rftoolsdim.dimension.network.PacketDimensionUpdate;
+import mcjty.rftoolsdim.dimension.power.FreezableWorldInfo;
 import mcjty.rftoolsdim.setup.RFToolsDimMessages;
 import mcjty.rftoolsdim.tools.ReflectionHelper;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.RegistryKey;
+import net.minecraft.util.concurrent.DelegatedTaskExecutor;
+import net.minecraft.util.concurrent.ITaskExecutor;
 import net.minecraft.util.registry.Registry;
+import net.minecraft.util.registry.SimpleRegistry;
 import net.minecraft.world.Dimension;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.BiomeManager;
 import net.minecraft.world.border.IBorderListener;
+import net.minecraft.world.chunk.ChunkTaskPriorityQueueSorter;
 import net.minecraft.world.chunk.listener.IChunkStatusListener;
 import net.minecraft.world.chunk.listener.IChunkStatusListenerFactory;
 import net.minecraft.world.gen.settings.DimensionGeneratorSettings;
+import net.minecraft.world.server.ChunkManager;
 import net.minecraft.world.server.ServerWorld;
-import net.minecraft.world.storage.DerivedWorldInfo;
 import net.minecraft.world.storage.IServerConfiguration;
+import net.minecraft.world.storage.IServerWorldInfo;
+import net.minecraft.world.storage.ISpawnWorldInfo;
 import net.minecraft.world.storage.SaveFormat;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.network.PacketDistributor;
 
-import java.util.Map;
+import java.io.IOException;
+import java.util.*;
 import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -38,6 +47,27 @@ public class DimensionHelper {
     public static final Function<MinecraftServer, SaveFormat.LevelSave> ANVIL_CONVERTER_FOR_ANVIL_FILE_FIELD =
             ReflectionHelper.getInstanceFieldGetter(MinecraftServer.class, "field_" + "71310_m");
 
+    public static final ReflectionHelper.MutableInstanceField<DimensionGeneratorSettings, SimpleRegistry<Dimension>> DIMENSIONS_FIELD =
+            ReflectionHelper.getInstanceField(DimensionGeneratorSettings.class, "field_" + "236208_h_");
+
+    // Used to move the chunk generation of worlds that vanilla created at server start to our worldgen executor
+    private static final ReflectionHelper.MutableInstanceField<ChunkManager, ChunkTaskPriorityQueueSorter> QUEUE_SORTER_FIELD =
+            ReflectionHelper.getInstanceFieldByType(ChunkManager.class, ChunkTaskPriorityQueueSorter.class);
+    private static final ReflectionHelper.MutableInstanceField<ChunkTaskPriorityQueueSorter, Map<ITaskExecutor<?>, ?>> SORTER_QUEUES_FIELD =
+            ReflectionHelper.getInstanceFieldByType(ChunkTaskPriorityQueueSorter.class, Map.class);
+    private static final ReflectionHelper.MutableInstanceField<ChunkTaskPriorityQueueSorter, DelegatedTaskExecutor<?>> SORTER_MAILBOX_FIELD =
+            ReflectionHelper.getInstanceFieldByType(ChunkTaskPriorityQueueSorter.class, DelegatedTaskExecutor.class);
+    private static final ReflectionHelper.MutableInstanceField<DelegatedTaskExecutor<?>, Executor> DISPATCHER_FIELD =
+            ReflectionHelper.getInstanceFieldByType(DelegatedTaskExecutor.class, Executor.class);
+    // Used to give worlds that vanilla created at server start our world info
+    private static final ReflectionHelper.MutableInstanceField<World, ISpawnWorldInfo> LEVEL_DATA_FIELD =
+            ReflectionHelper.getInstanceFieldByType(World.class, ISpawnWorldInfo.class);
+    private static final ReflectionHelper.MutableInstanceField<ServerWorld, IServerWorldInfo> SERVER_LEVEL_DATA_FIELD =
+            ReflectionHelper.getInstanceFieldByType(ServerWorld.class, IServerWorldInfo.class);
+
+    // The border listeners we added to the overworld so that we can remove them again when a world is unloaded
+    private static final Map<RegistryKey<World>, IBorderListener> BORDER_LISTENERS = new HashMap<>();
+
     /**
      * Gets a world, dynamically creating and registering one if it doesn't exist.
      * The dimension registry is stored in the server's level file, all previously registered dimensions are loaded
@@ -80,7 +110,12 @@ public class DimensionHelper {
     private static ServerWorld createAndRegisterWorldAndDimension(MinecraftServer server, Map<RegistryKey<World>, ServerWorld> map, RegistryKey<World> worldKey, BiFunction<MinecraftServer, RegistryKey<Dimension>, Dimension> dimensionFactory) {
         ServerWorld overworld = server.getLevel(World.OVERWORLD);
         RegistryKey<Dimension> dimensionKey = RegistryKey.create(Registry.LEVEL_STEM_REGISTRY, worldKey.location());
+        IServerConfiguration serverConfig = server.getWorldData();
+        DimensionGeneratorSettings dimensionGeneratorSettings = serverConfig.worldGenSettings();
+
         Dimension dimension = dimensionFactory.apply(server, dimensionKey);
+        // this next line registers the Dimension
+        dimensionGeneratorSettings.dimensions().register(dimensionKey, dimension, Lifecycle.experimental());
 
         // we need to get some private fields from MinecraftServer here
         // chunkStatusListenerFactory
@@ -88,7 +123,8 @@ public class DimensionHelper {
         // anvilConverterForAnvilFile
         // the int in create() here is radius of chunks to watch, 11 is what the server uses when it initializes worlds
         IChunkStatusListener chunkListener = CHUNK_STATUS_LISTENER_FACTORY_FIELD.apply(server).create(11);
-        Executor executor = BACKGROUND_EXECUTOR_FIELD.apply(server);
+        // RFTools dimensions use their own fair worldgen executor so they don't compete with the overworld
+        Executor executor = WorldGenExecutor.get().getExecutor(worldKey, BACKGROUND_EXECUTOR_FIELD.apply(server));
         SaveFormat.LevelSave levelSave = ANVIL_CONVERTER_FOR_ANVIL_FILE_FIELD.apply(server);
 
         // this is the same order server init creates these worlds:
@@ -96,11 +132,8 @@ public class DimensionHelper {
         // (in server init, the dimension is already in the dimension registry,
         // that'll get registered here before the world is instantiated as well)
 
-        IServerConfiguration serverConfig = server.getWorldData();
-        DimensionGeneratorSettings dimensionGeneratorSettings = serverConfig.worldGenSettings();
-        // this next line registers the Dimension
-        dimensionGeneratorSettings.dimensions().register(dimensionKey, dimension, Lifecycle.experimental());
-        DerivedWorldInfo derivedWorldInfo = new DerivedWorldInfo(serverConfig, serverConfig.overworldData());
+        // this is a DerivedWorldInfo which can also disable random ticks for this world only
+        FreezableWorldInfo derivedWorldInfo = new FreezableWorldInfo(serverConfig, serverConfig.overworldData());
         // now we have everything we need to create the world instance
         ServerWorld newWorld = new ServerWorld(
                 server,
@@ -120,7 +153,9 @@ public class DimensionHelper {
                 false); // "tick time", true for overworld, always false for everything else
 
         // add world border listener
-        overworld.getWorldBorder().addListener(new IBorderListener.Impl(newWorld.getWorldBorder()));
+        IBorderListener borderListener = new IBorderListener.Impl(newWorld.getWorldBorder());
+        overworld.getWorldBorder().addListener(borderListener);
+        BORDER_LISTENERS.put(worldKey, borderListener);
 
         // register world
         map.put(worldKey, newWorld);
@@ -135,4 +170,108 @@ public class DimensionHelper {
 
         return newWorld;
     }
-}
\ No newline at end of file
+
+    /**
+     * Worlds for dimensions that already existed are created by vanilla when the server starts and these get the
+     * shared background executor of the server. This switches the chunk generation (the worldgen, light and sorter
+     * mailboxes of the chunk manager) of such a world to our worldgen executor. Worlds that we created ourselves
+     * already use it, in that case this does nothing
+     */
+    public static void installWorldGenExecutor(ServerWorld world) {
+        MinecraftServer server = world.getServer();
+        Executor background = BACKGROUND_EXECUTOR_FIELD.apply(server);
+        Executor executor = WorldGenExecutor.get().getExecutor(world.dimension(), background);
+        if (executor == background) {
+            return;
+        }
+        ChunkTaskPriorityQueueSorter sorter = QUEUE_SORTER_FIELD.get(world.getChunkSource().chunkMap);
+        List<DelegatedTaskExecutor<?>> mailboxes = new ArrayList<>();
+        mailboxes.add(SORTER_MAILBOX_FIELD.get(sorter));
+        for (ITaskExecutor<?> mailbox : SORTER_QUEUES_FIELD.get(sorter).keySet()) {
+            // The main thread mailbox is not a DelegatedTaskExecutor
+            if (mailbox instanceof DelegatedTaskExecutor) {
+                mailboxes.add((DelegatedTaskExecutor<?>) mailbox);
+            }
+        }
+        for (DelegatedTaskExecutor<?> mailbox : mailboxes) {
+            if (DISPATCHER_FIELD.get(mailbox) == background) {
+                DISPATCHER_FIELD.set(mailbox, executor);
+            }
+        }
+    }
+
+    /**
+     * Replace the DerivedWorldInfo that vanilla gives to the worlds it creates at server start with a
+     * FreezableWorldInfo (which wraps the same data) so that random ticks can be frozen per world
+     */
+    public static void installWorldInfo(ServerWorld world) {
+        if (world.getLevelData() instanceof FreezableWorldInfo) {
+            return;
+        }
+        IServerConfiguration serverConfig = world.getServer().getWorldData();
+        FreezableWorldInfo worldInfo = new FreezableWorldInfo(serverConfig, serverConfig.overworldData());
+        LEVEL_DATA_FIELD.set(world, worldInfo);
+        SERVER_LEVEL_DATA_FIELD.set(world, worldInfo);
+    }
+
+    /**
+     * Save and unload a world. This doesn't remove the dimension from the dimension registry
+     * @return true if the world was unloaded
+     */
+    @SuppressWarnings("deprecation")
+    public static boolean unloadWorld(MinecraftServer server, RegistryKey<World> worldKey) {
+        Map<RegistryKey<World>, ServerWorld> map = server.forgeGetWorldMap();
+        ServerWorld world = map.get(worldKey);
+        if (world == null) {
+            return false;
+        }
+
+        // same order the server uses when it stops: fire unload event, save and close
+        MinecraftForge.EVENT_BUS.post(new WorldEvent.Unload(world));
+        try {
+            world.save(null, true, world.noSave);
+            world.close();
+        } catch (IOException e) {
+            RFToolsDim.setup.getLogger().error("Error unloading world " + worldKey.location(), e);
+        }
+
+        IBorderListener borderListener = BORDER_LISTENERS.remove(worldKey);
+        if (borderListener != null) {
+            server.overworld().getWorldBorder().removeListener(borderListener);
+        }
+
+        map.remove(worldKey);
+        server.markWorldsDirty();
+        WorldGenExecutor.get().forget(worldKey.location());
+        return true;
+    }
+
+    /**
+     * Unload worlds and remove their dimensions from the dimension registry so that they are not
+     * recreated when the server starts again. The dimension registry is only rebuilt once for all of them
+     */
+    public static void unregisterWorlds(MinecraftServer server, Collection<RegistryKey<World>> worldKeys) {
+        Set<RegistryKey<Dimension>> dimensionKeys = new HashSet<>();
+        for (RegistryKey<World> worldKey : worldKeys) {
+            unloadWorld(server, worldKey);
+            dimensionKeys.add(RegistryKey.create(Registry.LEVEL_STEM_REGISTRY, worldKey.location()));
+        }
+
+        // SimpleRegistry doesn't support removal so we replace it with a copy without these dimensions
+        DimensionGeneratorSettings dimensionGeneratorSettings = server.getWorldData().worldGenSettings();
+        SimpleRegistry<Dimension> dimensions = dimensionGeneratorSettings.dimensions();
+        if (dimensionKeys.stream().anyMatch(key -> dimensions.get(key) != null)) {
+            SimpleRegistry<Dimension> copy = new SimpleRegistry<>(Registry.LEVEL_STEM_REGISTRY, dimensions.elementsLifecycle());
+            for (Map.Entry<RegistryKey<Dimension>, Dimension> entry : dimensions.entrySet()) {
+                if (!dimensionKeys.contains(entry.getKey())) {
+                    copy.register(entry.getKey(), entry.getValue(), dimensions.lifecycle(entry.getValue()));
+                }
+            }
+            DIMENSIONS_FIELD.set(dimensionGeneratorSettings, copy);
+        }
+
+        for (RegistryKey<World> worldKey : worldKeys) {
+            RFToolsDimMessages.INSTANCE.send(PacketDistributor.ALL.noArg(), new PacketDimensionUpdate(worldKey, false));
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package mcjty.rftoolsdim.dimension.tools;
+
+import mcjty.rftoolsdim.RFToolsDim;
+import mcjty.rftoolsdim.dimension.DimensionConfig;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.World;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded thread pool that is used for chunk generation of RFTools dimensions instead of the
+ * shared background executor of the server. Every dimension gets its own queue and the worker threads
+ * serve the queues in a round robin fashion so that a single busy dimension can't starve the others.
+ */
+public class WorldGenExecutor {
+
+    private static final WorldGenExecutor INSTANCE = new WorldGenExecutor();
+
+    public static WorldGenExecutor get() {
+        return INSTANCE;
+    }
+
+    private final Object lock = new Object();
+    private final Map<ResourceLocation, DimensionQueue> queues = new HashMap<>();
+    // Queues that have work. Workers take the first queue, run one task and put it back at the end
+    private final Deque<DimensionQueue> ready = new ArrayDeque<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private boolean running = false;
+
+    private static class Task {
+        private final Runnable runnable;
+        private final long queued;
+
+        public Task(Runnable runnable) {
+            this.runnable = runnable;
+            this.queued = System.nanoTime();
+        }
+    }
+
+    private static class DimensionQueue {
+        private final ResourceLocation id;
+        private final Deque<Task> tasks = new ArrayDeque<>();
+        private boolean scheduled = false;
+        private boolean forgotten = false;  // Remove the queue as soon as it is empty
+        private long executed = 0;
+        private long totalWait = 0;
+        private long maxWait = 0;
+
+        public DimensionQueue(ResourceLocation id) {
+            this.id = id;
+        }
+    }
+
+    public static class Stats {
+        private final ResourceLocation id;
+        private final int queueDepth;
+        private final long executed;
+        private final long averageWaitMicros;
+        private final long maxWaitMicros;
+
+        public Stats(ResourceLocation id, int queueDepth, long executed, long averageWaitMicros, long maxWaitMicros) {
+            this.id = id;
+            this.queueDepth = queueDepth;
+            this.executed = executed;
+            this.averageWaitMicros = averageWaitMicros;
+            this.maxWaitMicros = maxWaitMicros;
+        }
+
+        public ResourceLocation getId() {
+            return id;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getExecuted() {
+            return executed;
+        }
+
+        public long getAverageWaitMicros() {
+            return averageWaitMicros;
+        }
+
+        public long getMaxWaitMicros() {
+            return maxWaitMicros;
+        }
+    }
+
+    /**
+     * Get the executor to use for chunk generation of the given world. If the dedicated executor is
+     * disabled in the config this returns the given fallback (the background executor of the server)
+     */
+    public Executor getExecutor(RegistryKey<World> worldKey, Executor fallback) {
+        if (DimensionConfig.WORLDGEN_THREADS.get() <= 0) {
+            return fallback;
+        }
+        ResourceLocation id = worldKey.location();
+        return task -> submit(id, task);
+    }
+
+    private void submit(ResourceLocation id, Runnable runnable) {
+        synchronized (lock) {
+            if (!running) {
+                start();
+            }
+            DimensionQueue queue = queues.computeIfAbsent(id, DimensionQueue::new);
+            queue.forgotten = false;    // The dimension was loaded again
+            queue.tasks.addLast(new Task(runnable));
+            if (!queue.scheduled) {
+                queue.scheduled = true;
+                ready.addLast(queue);
+            }
+            lock.notify();
+        }
+    }
+
+    private void start() {
+        running = true;
+        int count = DimensionConfig.WORLDGEN_THREADS.get();
+        int priority = DimensionConfig.WORLDGEN_THREAD_PRIORITY.get();
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(this::work, "RFToolsDim-Worldgen-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            thread.setUncaughtExceptionHandler((t, e) -> RFToolsDim.setup.getLogger().error("Uncaught exception in " + t.getName(), e));
+            workers.add(thread);
+            thread.start();
+        }
+        RFToolsDim.setup.getLogger().info("Started " + count + " worldgen threads for RFTools dimensions");
+    }
+
+    private void work() {
+        while (true) {
+            Task task;
+            synchronized (lock) {
+                while (running && ready.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                DimensionQueue queue = ready.pollFirst();
+                task = queue.tasks.pollFirst();
+                if (queue.tasks.isEmpty()) {
+                    queue.scheduled = false;
+                    if (queue.forgotten) {
+                        queues.remove(queue.id, queue);
+                    }
+                } else {
+                    ready.addLast(queue);
+                }
+                long wait = System.nanoTime() - task.queued;
+                queue.executed++;
+                queue.totalWait += wait;
+                queue.maxWait = Math.max(queue.maxWait, wait);
+            }
+            try {
+                task.runnable.run();
+            } catch (Throwable e) {
+                // Also catch errors. Otherwise the worker thread dies and the pool silently gets smaller
+                RFToolsDim.setup.getLogger().error("Error during worldgen task", e);
+            }
+        }
+    }
+
+    /**
+     * Forget the queue and stats of a dimension that is unloaded or deleted. If there are still
+     * tasks queued for it the queue is removed as soon as these are done
+     */
+    public void forget(ResourceLocation id) {
+        synchronized (lock) {
+            DimensionQueue queue = queues.get(id);
+            if (queue != null) {
+                if (queue.scheduled) {
+                    queue.forgotten = true;
+                } else {
+                    queues.remove(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop all worker threads. Tasks that are still queued are run on the calling thread so that
+     * chunks that are waiting on them can still complete while the server is saving
+     */
+    public void shutdown() {
+        List<Task> remaining = new ArrayList<>();
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            for (DimensionQueue queue : queues.values()) {
+                remaining.addAll(queue.tasks);
+            }
+            queues.clear();
+            ready.clear();
+            lock.notifyAll();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.clear();
+        for (Task task : remaining) {
+            task.runnable.run();
+        }
+    }
+
+    public List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>();
+        synchronized (lock) {
+            for (DimensionQueue queue : queues.values()) {
+                long average = queue.executed == 0 ? 0 : queue.totalWait / queue.executed / 1000;
+                stats.add(new Stats(queue.id, queue.tasks.size(), queue.executed, average, queue.maxWait / 1000));
+            }
+        }
+        stats.sort(Comparator.comparing(s -> s.getId().toString()));
+        return stats;
+    }
+}
@@ -24,6 +24,7 @@ import mcjty.rftoolsdim.dimension.data.PersistantDimensionManager;
 import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptor;
 import mcjty.rftoolsdim.dimension.descriptor.DimensionDescriptor;
 import mcjty.rftoolsdim.dimension.power.PowerHandler;
+import mcjty.rftoolsdim.dimension.tools.ArrivalPreloader;
 import mcjty.rftoolsdim.modules.dimensionbuilder.DimensionBuilderConfig;
 import mcjty.rftoolsdim.modules.dimensionbuilder.DimensionBuilderModule;
 import net.minecraft.block.Blocks;
@@ -36,6 +37,7 @@ import net.minecraft.tileentity.ITickableTileEntity;
 import net.minecraft.util.IStringSerializable;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.common.util.Lazy;
 import net.minecraftforge.common.util.LazyOptional;
@@ -248,9 +250,8 @@ public class DimensionBuilderTileEntity extends GenericTileEntity implements ITi
             }
             tagCompound.putInt("ticksLeft", ticksLeft);
             if (ticksLeft <= 0) {
-                String descriptorString = tagCompound.getString("descriptor");
                 DimensionDescriptor descriptor = new DimensionDescriptor();
-                descriptor.read(descriptorString);
+                descriptor.read(tagCompound, "descriptor");
 
                 DimensionDescriptor randomizedDescriptor = descriptor.createRandomizedDescriptor(random);
 
@@ -268,20 +269,21 @@ public class DimensionBuilderTileEntity extends GenericTileEntity implements ITi
                 }
 
                 long seed = random.nextLong();
-                ServerWorld newworld = DimensionManager.get().createWorld(this.level, name, seed, descriptor, randomizedDescriptor);
+                ServerWorld newworld = DimensionManager.get().createWorld(this.level, name, seed, descriptor, randomizedDescriptor, getOwnerUUID());
                 ResourceLocation id = new ResourceLocation(RFToolsDim.MODID, name);
                 tagCompound.putString("dimension", id.toString());
                 CompiledDescriptor compiledDescriptor = DimensionManager.get().getCompiledDescriptor(newworld);
                 tagCompound.putInt("rfMaintainCost", compiledDescriptor.getActualPowerCost());
                 setChanged();
 
-                placeMatterReceiver(newworld, name);
+                // Wait until the platform is generated so we don't stall the server generating it here
+                ArrivalPreloader.get().whenReady(newworld, new ChunkPos(0, 0), () -> placeMatterReceiver(newworld, name));
             }
         }
         return ticksLeft;
     }
 
-    private void placeMatterReceiver(ServerWorld newworld, String name) {
+    private static void placeMatterReceiver(ServerWorld newworld, String name) {
         int y = 250;
         while (y >= 1) {
             if (newworld.getBlockState(new BlockPos(8, y, 8)).getBlock() == Blocks.COMMAND_BLOCK) {
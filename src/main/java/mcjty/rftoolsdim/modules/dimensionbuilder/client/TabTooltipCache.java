@@ -0,0 +1,88 @@
+package mcjty.rftoolsdim.modules.dimensionbuilder.client;
+
+import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.INBT;
+import net.minecraft.util.text.ITextComponent;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Client side cache of the description lines (terrain, controller, time, features) in the tooltip of
+ * a realized dimension tab. Tooltips are rendered every frame so without this the descriptors would be
+ * parsed again all the time. Entries are keyed by the raw descriptor tags of the tab and the cache is
+ * cleared when another dimlet dictionary is used
+ */
+public class TabTooltipCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private static final Map<Key, List<ITextComponent>> lines = new LinkedHashMap<Key, List<ITextComponent>>(16, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, List<ITextComponent>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static DimletDictionary dictionary = null;
+
+    private static class Key {
+        private final INBT descriptor;
+        private final INBT randomized;
+        private final int hash;
+
+        // The tags are not copied. A key that is used for a lookup can use the live tags of the item
+        public Key(@Nullable INBT descriptor, @Nullable INBT randomized) {
+            this(descriptor, randomized, Objects.hash(descriptor, randomized));
+        }
+
+        private Key(@Nullable INBT descriptor, @Nullable INBT randomized, int hash) {
+            this.descriptor = descriptor;
+            this.randomized = randomized;
+            this.hash = hash;
+        }
+
+        // A key with copies of the tags so that it can be stored in the cache
+        public Key copy() {
+            return new Key(descriptor == null ? null : descriptor.copy(), randomized == null ? null : randomized.copy(), hash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return hash == key.hash && Objects.equals(descriptor, key.descriptor) && Objects.equals(randomized, key.randomized);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /// Get the description lines for the tab with this tag. 'builder' is only called if they are not cached
+    public static List<ITextComponent> get(CompoundNBT tag, Function<CompoundNBT, List<ITextComponent>> builder) {
+        DimletDictionary current = DimletDictionary.get();
+        if (current != dictionary) {
+            lines.clear();
+            dictionary = current;
+        }
+        Key key = new Key(tag.get("descriptor"), tag.get("randomized"));
+        List<ITextComponent> result = lines.get(key);
+        if (result == null) {
+            result = Collections.unmodifiableList(builder.apply(tag));
+            lines.put(key.copy(), result);
+        }
+        return result;
+    }
+
+    public static void clear() {
+        lines.clear();
+    }
+}
@@ -8,10 +8,12 @@ import mcjty.rftoolsdim.dimension.data.DimensionData;
 import mcjty.rftoolsdim.dimension.data.DimensionSettings;
 import mcjty.rftoolsdim.dimension.data.PersistantDimensionManager;
 import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptor;
+import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptorCache;
 import mcjty.rftoolsdim.dimension.descriptor.CompiledFeature;
 import mcjty.rftoolsdim.dimension.descriptor.DescriptorError;
 import mcjty.rftoolsdim.dimension.descriptor.DimensionDescriptor;
 import mcjty.rftoolsdim.dimension.terraintypes.BaseChunkGenerator;
+import mcjty.rftoolsdim.modules.dimensionbuilder.client.TabTooltipCache;
 import net.minecraft.client.util.ITooltipFlag;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.item.Item;
@@ -31,6 +33,7 @@ import net.minecraftforge.fml.server.ServerLifecycleHooks;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.List;
 
 public class RealizedDimensionTab extends Item {
@@ -45,7 +48,9 @@ public class RealizedDimensionTab extends Item {
         ItemStack stack = player.getItemInHand(hand);
         if ((!world.isClientSide) && player.isShiftKeyDown()) {
             CompoundNBT tagCompound = stack.getTag();
-            Logging.message(player, tagCompound.getString("descriptor"));
+            DimensionDescriptor tabDescriptor = new DimensionDescriptor();
+            tabDescriptor.read(tagCompound, "descriptor");
+            Logging.message(player, tabDescriptor.compact());
             if (tagCompound.contains("dimension")) {
                 String dimension = tagCompound.getString("dimension");
                 DimensionData data = PersistantDimensionManager.get(world).getData(new ResourceLocation(dimension));
@@ -60,7 +65,7 @@ public class RealizedDimensionTab extends Item {
 
                 RegistryKey<World> id = LevelTools.getId(dimension);
                 ServerWorld serverWorld = ServerLifecycleHooks.getCurrentServer().getLevel(id);
-                ChunkGenerator generator = serverWorld.getChunkSource().generator;
+                ChunkGenerator generator = serverWorld == null ? null : serverWorld.getChunkSource().generator;
                 if (generator instanceof BaseChunkGenerator) {
                     DimensionSettings settings = ((BaseChunkGenerator) generator).getDimensionSettings();
                     player.displayClientMessage(new StringTextComponent(TextFormatting.BLUE + "Seed: " + TextFormatting.WHITE + settings.getSeed()), false);
@@ -85,9 +90,7 @@ public class RealizedDimensionTab extends Item {
             }
 
             if (McJtyLib.proxy.isSneaking()) {
-                String descriptionString = tagCompound.getString("descriptor");
-                String randomizedString = tagCompound.getString("randomized");
-                constructDescriptionHelp(list, descriptionString, randomizedString);
+                list.addAll(TabTooltipCache.get(tagCompound, RealizedDimensionTab::constructDescriptionHelp));
             } else {
                 list.add(new StringTextComponent(TextFormatting.GREEN + "    <Press Shift>"));
             }
@@ -116,16 +119,18 @@ public class RealizedDimensionTab extends Item {
         }
     }
 
-    private void constructDescriptionHelp(List<ITextComponent> list, String descriptionString, String randomizedString) {
+    private static List<ITextComponent> constructDescriptionHelp(CompoundNBT tagCompound) {
+        List<ITextComponent> list = new ArrayList<>();
         DimensionDescriptor descriptor = new DimensionDescriptor();
-        descriptor.read(descriptionString);
+        descriptor.read(tagCompound, "descriptor");
         DimensionDescriptor randomizedDescriptor = new DimensionDescriptor();
-        if (!randomizedString.isEmpty()) {
-            randomizedDescriptor.read(randomizedString);
+        if (tagCompound.contains("randomized")) {
+            randomizedDescriptor.read(tagCompound, "randomized");
         }
-        CompiledDescriptor compiledDescriptor = new CompiledDescriptor();
-        DescriptorError error = compiledDescriptor.compile(descriptor, randomizedDescriptor);
+        CompiledDescriptorCache.Result result = CompiledDescriptorCache.compile(descriptor, randomizedDescriptor);
+        DescriptorError error = result.getError();
         if (error.isOk()) {
+            CompiledDescriptor compiledDescriptor = result.getCompiledDescriptor();
             if (compiledDescriptor.getTerrainType() != null) {
                 list.add(new StringTextComponent(TextFormatting.GREEN + "    Terrain: " + TextFormatting.WHITE + compiledDescriptor.getTerrainType().getName()));
             }
@@ -141,5 +146,6 @@ public class RealizedDimensionTab extends Item {
         } else {
             list.add(new StringTextComponent(TextFormatting.RED + "Parse error: " + error.getMessage()));
         }
+        return list;
     }
 }
@@ -8,6 +8,7 @@ public class DimensionEditorConfig {
 
     public static ForgeConfigSpec.IntValue EDITOR_MAXENERGY;
     public static ForgeConfigSpec.IntValue EDITOR_RECEIVEPERTICK;
+    public static ForgeConfigSpec.BooleanValue EDITOR_CAN_DELETE_DIMENSIONS;
 
 
     public static void init(ForgeConfigSpec.Builder SERVER_BUILDER, ForgeConfigSpec.Builder CLIENT_BUILDER) {
@@ -19,6 +20,9 @@ public class DimensionEditorConfig {
         EDITOR_RECEIVEPERTICK = SERVER_BUILDER
                 .comment("Maximum RF storage that the dimension editor can receive per side")
                 .defineInRange("generatorMaxRF", 20000, 0, Integer.MAX_VALUE);
+        EDITOR_CAN_DELETE_DIMENSIONS = SERVER_BUILDER
+                .comment("If true the dimension editor can delete dimensions by injecting TNT. This also deletes the dimension folder")
+                .define("editorCanDeleteDimensions", false);
 
         SERVER_BUILDER.pop();
     }
@@ -19,6 +19,7 @@ import mcjty.lib.varia.NBTTools;
 import mcjty.rftoolsbase.tools.ManualHelper;
 import mcjty.rftoolsdim.compat.RFToolsUtilityCompat;
 import mcjty.rftoolsdim.dimension.data.DimensionData;
+import mcjty.rftoolsdim.dimension.data.DimensionDeletionManager;
 import mcjty.rftoolsdim.dimension.data.PersistantDimensionManager;
 import mcjty.rftoolsdim.modules.dimensionbuilder.blocks.DimensionBuilderTileEntity;
 import mcjty.rftoolsdim.modules.dimensioneditor.DimensionEditorConfig;
@@ -248,52 +249,13 @@ public class DimensionEditorTileEntity extends GenericTileEntity implements ITic
     }
 
     private void safeDeleteDimension(ResourceLocation id, ItemStack dimensionTab) {
-//        World w = DimensionManager.getWorld(id);
-//        if (w != null) {
-//            // Dimension is still loaded. Do nothing.
-//            Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "Dimension cannot be deleted. It is still in use!", 10);
-//            return;
-//        }
-//        RfToolsDimensionManager dimensionManager = RfToolsDimensionManager.getDimensionManager(getWorld());
-//        DimensionInformation information = dimensionManager.getDimensionInformation(id);
-//        if (information.getOwner() == null) {
-//            Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "You cannot delete a dimension without an owner!", 10);
-//            return;
-//        }
-//        if (getOwnerUUID() == null) {
-//            Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "This machine has no proper owner and cannot delete dimensions!", 10);
-//            return;
-//        }
-//        if (!getOwnerUUID().equals(information.getOwner())) {
-//            Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "This machine's owner differs from the dimensions owner!", 10);
-//            return;
-//        }
-//
-//        RFToolsDim.teleportationManager.removeReceiverDestinations(getWorld(), id);
-//
-//        dimensionManager.removeDimension(id);
-//        dimensionManager.reclaimId(id);
-//        dimensionManager.save(getWorld());
-//
-//        DimensionStorage dimensionStorage = DimensionStorage.getDimensionStorage(getWorld());
-//        dimensionStorage.removeDimension(id);
-//        dimensionStorage.save();
-//
-//        if (GeneralConfiguration.dimensionFolderIsDeletedWithSafeDel) {
-//            File rootDirectory = DimensionManager.getCurrentSaveRootDirectory();
-//            try {
-//                FileUtils.deleteDirectory(new File(rootDirectory.getPath() + File.separator + "RFTOOLS" + id));
-//                Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "Dimension deleted and dimension folder succesfully wiped!", 10);
-//            } catch (IOException e) {
-//                Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "Dimension deleted but dimension folder could not be completely wiped!", 10);
-//            }
-//        } else {
-//            Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "Dimension deleted. Please remove the dimension folder from disk!", 10);
-//        }
-//
-//        dimensionTab.getTagCompound().removeTag("id");
-//        int tickCost = dimensionTab.getTagCompound().getInteger("tickCost");
-//        dimensionTab.getTagCompound().setInteger("ticksLeft", tickCost);
+        // We are ticking so the world can't be unloaded here. This is done at the end of the server tick
+        DimensionDeletionManager.get().queueDelete(id, null);
+
+        // The tab can be used again to build a new dimension
+        CompoundNBT tag = dimensionTab.getOrCreateTag();
+        tag.remove("dimension");
+        tag.putInt("ticksLeft", tag.getInt("tickCost"));
     }
 
     private int findGoodReceiverLocation(World dimWorld) {
@@ -356,32 +318,27 @@ public class DimensionEditorTileEntity extends GenericTileEntity implements ITic
     }
 
     private ItemStack canDeleteDimension(ItemStack itemStack) {
-//        if (!GeneralConfiguration.playersCanDeleteDimensions) {
-//            Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "Players cannot delete dimensions!", 10);
-//            return ItemStack.EMPTY;
-//        }
-//        if (!GeneralConfiguration.editorCanDeleteDimensions) {
-//            Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "Dimension deletion with the editor is not enabled!", 10);
-//            return ItemStack.EMPTY;
-//        }
-//        ItemStack dimensionStack = inventoryHelper.getStackInSlot(DimensionEditorContainer.SLOT_DIMENSIONTARGET);
-//        if (dimensionStack.isEmpty()) {
-//            return ItemStack.EMPTY;
-//        }
-//
-//        NBTTagCompound tagCompound = dimensionStack.getTagCompound();
-//        int id = tagCompound.getInteger("id");
-//        if (id == 0) {
-//            return ItemStack.EMPTY;
-//        }
-//        DimensionInformation information = RfToolsDimensionManager.getDimensionManager(getWorld()).getDimensionInformation(id);
-//
-//        if (getOwnerUUID() != null && getOwnerUUID().equals(information.getOwner())) {
-//            return itemStack;
-//        }
-//
-//        Broadcaster.broadcast(getWorld(), pos.getX(), pos.getY(), pos.getZ(), "This machine's owner differs from the dimensions owner!", 10);
-//        return ItemStack.EMPTY;
+        if (!DimensionEditorConfig.EDITOR_CAN_DELETE_DIMENSIONS.get()) {
+            return ItemStack.EMPTY;
+        }
+        ItemStack dimensionStack = items.getStackInSlot(SLOT_DIMENSIONTARGET);
+        if (dimensionStack.isEmpty()) {
+            return ItemStack.EMPTY;
+        }
+
+        CompoundNBT tagCompound = dimensionStack.getTag();
+        if (tagCompound == null || !tagCompound.contains("dimension")) {
+            return ItemStack.EMPTY;
+        }
+        DimensionData data = PersistantDimensionManager.get(level).getData(new ResourceLocation(tagCompound.getString("dimension")));
+        if (data == null) {
+            return ItemStack.EMPTY;
+        }
+
+        // Only the owner of a dimension can delete it
+        if (getOwnerUUID() != null && getOwnerUUID().equals(data.getOwner())) {
+            return itemStack;
+        }
         return ItemStack.EMPTY;
     }
 
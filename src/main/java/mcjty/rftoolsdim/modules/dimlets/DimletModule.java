@@ -2,6 +2,7 @@ package mcjty.rftoolsdim.modules.dimlets;
 
 import mcjty.lib.modules.IModule;
 import mcjty.rftoolsdim.RFToolsDim;
+import mcjty.rftoolsdim.modules.dimlets.client.DimletNameCache;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletType;
 import mcjty.rftoolsdim.modules.dimlets.items.DimletItem;
 import mcjty.rftoolsdim.modules.dimlets.items.PartItem;
@@ -81,7 +82,7 @@ public class DimletModule implements IModule {
 
     @Override
     public void initClient(FMLClientSetupEvent event) {
-
+        event.enqueueWork(DimletNameCache::registerReloadListener);
     }
 
     @Override
@@ -0,0 +1,110 @@
+package mcjty.rftoolsdim.modules.dimlets.client;
+
+import io.netty.buffer.Unpooled;
+import mcjty.rftoolsdim.RFToolsDim;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletSettings;
+import mcjty.rftoolsdim.modules.dimlets.network.PacketRequestDimlets;
+import mcjty.rftoolsdim.setup.RFToolsDimMessages;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ServerData;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.loading.FMLPaths;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Client side cache of the dimlet dictionaries of the servers the client connected to. There is one
+ * file per server. The dictionary in it is only used if its hash matches the hash the server sends
+ */
+public class ClientDimletCache {
+
+    private static final int FORMAT_VERSION = 2;
+
+    // The dictionary that is being received from the server. It is only published when it is complete
+    private static DimletDictionary pending = null;
+
+    public static void handleHash(String hash) {
+        DimletDictionary cached = load(hash);
+        if (cached != null) {
+            pending = null;
+            DimletDictionary.set(cached);
+        } else {
+            pending = DimletDictionary.create();
+            RFToolsDimMessages.INSTANCE.sendToServer(new PacketRequestDimlets());
+        }
+    }
+
+    /// Add dimlets that were sent by the server. The last packet has the hash
+    public static void receive(Map<DimletKey, DimletSettings> dimlets, Map<DimletKey, Integer> ids, String hash) {
+        if (pending == null) {
+            pending = DimletDictionary.create();
+        }
+        for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
+            pending.register(ids.get(entry.getKey()), entry.getKey(), entry.getValue());
+        }
+        if (!hash.isEmpty()) {
+            DimletDictionary.set(pending);
+            save(hash, pending);
+            pending = null;
+        }
+    }
+
+    private static Path getCachePath() {
+        ServerData server = Minecraft.getInstance().getCurrentServer();
+        String id = server == null ? "local" : server.ip.replaceAll("[^a-zA-Z0-9._-]", "_");
+        return FMLPaths.CONFIGDIR.get().resolve("rftoolsdim").resolve("clientcache").resolve(id + ".bin");
+    }
+
+    @Nullable
+    private static DimletDictionary load(String hash) {
+        Path path = getCachePath();
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            PacketBuffer buf = new PacketBuffer(Unpooled.wrappedBuffer(Files.readAllBytes(path)));
+            if (buf.readInt() != FORMAT_VERSION || !hash.equals(buf.readUtf(64))) {
+                return null;
+            }
+            DimletDictionary dictionary = DimletDictionary.create();
+            int size = buf.readVarInt();
+            for (int i = 0 ; i < size ; i++) {
+                int id = buf.readVarInt();
+                DimletKey key = new DimletKey(buf);
+                DimletSettings settings = DimletSettings.fromPersistentBytes(buf);
+                dictionary.register(id, key, settings);
+            }
+            return dictionary;
+        } catch (IOException | RuntimeException e) {
+            RFToolsDim.setup.getLogger().warn("Error reading cached dimlets: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void save(String hash, DimletDictionary dictionary) {
+        PacketBuffer buf = new PacketBuffer(Unpooled.buffer());
+        buf.writeInt(FORMAT_VERSION);
+        buf.writeUtf(hash);
+        buf.writeVarInt(dictionary.getDimlets().size());
+        for (DimletKey key : dictionary.getDimlets()) {
+            buf.writeVarInt(dictionary.getId(key));
+            key.toBytes(buf);
+            dictionary.getSettings(key).toPersistentBytes(buf);
+        }
+        byte[] data = new byte[buf.readableBytes()];
+        buf.readBytes(data);
+        Path path = getCachePath();
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(path, data);
+        } catch (IOException e) {
+            RFToolsDim.setup.getLogger().warn("Could not cache the dimlets of this server: " + e.getMessage());
+        }
+    }
+}
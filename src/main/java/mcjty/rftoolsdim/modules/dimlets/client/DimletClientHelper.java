@@ -1,59 +1,117 @@
 package mcjty.rftoolsdim.modules.dimlets.client;
 
-import mcjty.lib.blockcommands.ISerializer;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
-import mcjty.rftoolsdim.modules.dimlets.data.DimletType;
-import net.minecraft.network.PacketBuffer;
+import mcjty.rftoolsdim.modules.workbench.blocks.WorkbenchTileEntity;
+import mcjty.rftoolsdim.modules.workbench.network.PacketDimletList;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.function.BiConsumer;
-import java.util.function.Function;
+import javax.annotation.Nullable;
+import java.util.*;
 
 public class DimletClientHelper {
 
     public static long dimletListAge = 0;
-    public static List<DimletWithInfo> dimlets = new ArrayList<>();
+    // The id of the last query of the workbench GUI. Replies to older queries are ignored
+    public static int dimletListQuery = 0;
+    // The query of which we have results, the version of the list on the server and the total number of
+    // dimlets that match that query
+    public static int dimletListResultQuery = -1;
+    public static long dimletListVersion = -1;
+    public static int dimletListTotal = 0;
+    // The pages (by page index) that were received for this version. Only the pages that are shown are
+    // asked for. A dimlet that is not known on the client (outdated dictionary) is null
+    private static final Map<Integer, DimletWithInfo[]> dimletPages = new HashMap<>();
 
-    public static void setDimletsOnGui(List<DimletWithInfo> dimlets) {
-        DimletClientHelper.dimlets = dimlets;
+    /// Start with an empty list (when the workbench GUI is opened)
+    public static void resetDimletList() {
+        dimletPages.clear();
+        dimletListResultQuery = -1;
+        dimletListVersion = -1;
+        dimletListTotal = 0;
+        dimletListAge++;
+    }
+
+    /// Start a new query. The results of the previous query are kept until the first reply for the new one arrives
+    public static int newDimletListQuery() {
+        return ++dimletListQuery;
+    }
+
+    public static boolean hasDimletPage(int page) {
+        return dimletPages.containsKey(page);
+    }
+
+    /// Get a dimlet by its row in the results. Null if its page wasn't received yet
+    @Nullable
+    public static DimletWithInfo getDimlet(int row) {
+        DimletWithInfo[] page = dimletPages.get(row / WorkbenchTileEntity.LIST_PAGE_SIZE);
+        int index = row % WorkbenchTileEntity.LIST_PAGE_SIZE;
+        return page != null && index < page.length ? page[index] : null;
+    }
+
+    public static void handleDimletList(int query, int mode, long version, int total, int offset, int[] ids, BitSet craftable) {
+        if (query != dimletListQuery) {
+            return;
+        }
+        if (query != dimletListResultQuery) {
+            dimletPages.clear();
+            dimletListResultQuery = query;
+            dimletListVersion = -1;
+            dimletListTotal = 0;
+        }
+        DimletDictionary dictionary = DimletDictionary.get();
+        switch (mode) {
+            case PacketDimletList.FULL:
+                if (version != dimletListVersion) {
+                    // The pages we have are from an older version of the list
+                    dimletPages.clear();
+                }
+                DimletWithInfo[] page = new DimletWithInfo[ids.length];
+                for (int i = 0 ; i < ids.length ; i++) {
+                    DimletKey key = dictionary.getKey(ids[i]);
+                    if (key != null) {
+                        page[i] = new DimletWithInfo(ids[i], key, craftable.get(i));
+                    }
+                }
+                dimletPages.put(offset / WorkbenchTileEntity.LIST_PAGE_SIZE, page);
+                dimletListVersion = version;
+                dimletListTotal = total;
+                break;
+            case PacketDimletList.DELTA:
+                // Only the craftable flag of these dimlets changed. The rows stay the same
+                Map<Integer, Boolean> changed = new HashMap<>();
+                for (int i = 0 ; i < ids.length ; i++) {
+                    changed.put(ids[i], craftable.get(i));
+                }
+                for (DimletWithInfo[] p : dimletPages.values()) {
+                    for (int i = 0 ; i < p.length ; i++) {
+                        if (p[i] != null && changed.containsKey(p[i].getId())) {
+                            p[i] = new DimletWithInfo(p[i].getId(), p[i].getDimlet(), changed.get(p[i].getId()));
+                        }
+                    }
+                }
+                dimletListVersion = version;
+                break;
+            case PacketDimletList.UNCHANGED:
+                break;
+        }
         dimletListAge++;
     }
 
     public static class DimletWithInfo implements Comparable<DimletWithInfo> {
+        private final int id;
         private final DimletKey dimlet;
         private final boolean craftable;
 
-        public static class Serializer implements ISerializer<DimletWithInfo> {
-            @Override
-            public Function<PacketBuffer, DimletWithInfo> getDeserializer() {
-                return buf -> {
-                    short idx = buf.readShort();
-                    DimletType type = DimletType.values()[idx];
-                    String key = buf.readUtf(32767);
-                    DimletKey dimlet1 = new DimletKey(type, key);
-                    boolean craftable1 = buf.readBoolean();
-                    return new DimletWithInfo(dimlet1, craftable1);
-                };
-            }
-
-            @Override
-            public BiConsumer<PacketBuffer, DimletWithInfo> getSerializer() {
-                return (buf, info) -> {
-                    DimletKey dimlet1 = info.getDimlet();
-                    buf.writeShort(dimlet1.getType().ordinal());
-                    buf.writeUtf(dimlet1.getKey());
-                    buf.writeBoolean(info.isCraftable());
-                };
-            }
-        }
-
-        public DimletWithInfo(DimletKey dimlet, boolean craftable) {
+        public DimletWithInfo(int id, DimletKey dimlet, boolean craftable) {
+            this.id = id;
             this.dimlet = dimlet;
             this.craftable = craftable;
         }
 
+        public int getId() {
+            return id;
+        }
+
         public DimletKey getDimlet() {
             return dimlet;
         }
@@ -0,0 +1,48 @@
+package mcjty.rftoolsdim.modules.dimlets.client;
+
+import mcjty.rftoolsdim.modules.dimensionbuilder.client.TabTooltipCache;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletTools;
+import net.minecraft.client.Minecraft;
+import net.minecraft.resources.IReloadableResourceManager;
+import net.minecraft.resources.IResourceManager;
+import net.minecraft.resources.IResourceManagerReloadListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Client side cache of the readable names of dimlets. Translating a name needs registry lookups and
+ * localization so this is only done once for every dimlet. The cache is cleared when the resources are
+ * reloaded (this happens when the language changes) and when another dimlet dictionary is used
+ */
+public class DimletNameCache {
+
+    private static final Map<DimletKey, String> names = new HashMap<>();
+    private static DimletDictionary dictionary = null;
+
+    public static String get(DimletKey key) {
+        DimletDictionary current = DimletDictionary.get();
+        if (current != dictionary) {
+            names.clear();
+            dictionary = current;
+        }
+        return names.computeIfAbsent(key, DimletTools::translateReadableName);
+    }
+
+    public static void clear() {
+        names.clear();
+        DimletSearchIndex.clear();
+        TabTooltipCache.clear();
+    }
+
+    public static void registerReloadListener() {
+        ((IReloadableResourceManager) Minecraft.getInstance().getResourceManager())
+                .registerReloadListener((IResourceManagerReloadListener) DimletNameCache::onResourceManagerReload);
+    }
+
+    private static void onResourceManagerReload(IResourceManager manager) {
+        clear();
+    }
+}
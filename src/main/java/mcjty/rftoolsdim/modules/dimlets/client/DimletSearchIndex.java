@@ -0,0 +1,83 @@
+package mcjty.rftoolsdim.modules.dimlets.client;
+
+import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletSettings;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletTools;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletType;
+
+import javax.annotation.Nullable;
+
+/**
+ * Client side index (by dimlet id) of the readable names of all dimlets so that searching doesn't
+ * have to translate names for every dimlet on every keystroke. It is built once for every dictionary
+ */
+public class DimletSearchIndex {
+
+    private static DimletSearchIndex instance = null;
+
+    private final DimletDictionary dictionary;
+    private final String[] names;
+    private final String[] lowerNames;
+    private final int[] typeBits;       // 1 << type ordinal
+    private final int[] rarityBits;     // 1 << rarity ordinal
+
+    private DimletSearchIndex(DimletDictionary dictionary) {
+        this.dictionary = dictionary;
+        int size = dictionary.getKeysById().size();
+        names = new String[size];
+        lowerNames = new String[size];
+        typeBits = new int[size];
+        rarityBits = new int[size];
+        for (int id = 0 ; id < size ; id++) {
+            DimletKey key = dictionary.getKey(id);
+            DimletSettings settings = dictionary.getSettings(id);
+            if (key != null && settings != null) {
+                names[id] = DimletTools.getReadableName(key);
+                lowerNames[id] = names[id].toLowerCase();
+                typeBits[id] = 1 << key.getType().ordinal();
+                rarityBits[id] = 1 << settings.getRarity().ordinal();
+            }
+        }
+    }
+
+    public static void clear() {
+        instance = null;
+    }
+
+    public static DimletSearchIndex get() {
+        DimletDictionary dictionary = DimletDictionary.get();
+        if (instance == null || instance.dictionary != dictionary) {
+            instance = new DimletSearchIndex(dictionary);
+        }
+        return instance;
+    }
+
+    @Nullable
+    public String getName(int id) {
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    /// Return the types of which the name contains the filter as a bitmask (1 << type ordinal)
+    public static int getMatchingTypes(String filter) {
+        int mask = 0;
+        for (DimletType type : DimletType.values()) {
+            if (type.name().toLowerCase().contains(filter)) {
+                mask |= 1 << type.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /// Test if a dimlet matches. 'filter' must be lowercase. 'typeMask' are the types that match the filter
+    /// by name (see getMatchingTypes()) and 'rarityMask' are the rarities that are shown
+    public boolean matches(int id, String filter, int typeMask, int rarityMask) {
+        if (id < 0 || id >= names.length || names[id] == null) {
+            return false;
+        }
+        if ((rarityBits[id] & rarityMask) == 0) {
+            return false;
+        }
+        return (typeBits[id] & typeMask) != 0 || lowerNames[id].contains(filter);
+    }
+}
@@ -0,0 +1,72 @@
+package mcjty.rftoolsdim.modules.dimlets.data;
+
+import java.util.Random;
+
+/**
+ * Walker/Vose alias table. Draws from a fixed weighted set of outcomes in constant time
+ * (one random index and one random double) without retries or allocation
+ */
+public class AliasTable {
+
+    public static final AliasTable EMPTY = new AliasTable(new int[0], new double[0]);
+
+    private final int[] outcomes;
+    private final double[] probability;
+    private final int[] alias;
+
+    public AliasTable(int[] outcomes, double[] weights) {
+        int n = outcomes.length;
+        this.outcomes = outcomes;
+        this.probability = new double[n];
+        this.alias = new int[n];
+        if (n == 0) {
+            return;
+        }
+
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCnt = 0;
+        int largeCnt = 0;
+        for (int i = 0 ; i < n ; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCnt++] = i;
+            } else {
+                large[largeCnt++] = i;
+            }
+        }
+        while (smallCnt > 0 && largeCnt > 0) {
+            int s = small[--smallCnt];
+            int l = large[--largeCnt];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[smallCnt++] = l;
+            } else {
+                large[largeCnt++] = l;
+            }
+        }
+        // Whatever is left is 1 (apart from rounding errors)
+        while (largeCnt > 0) {
+            probability[large[--largeCnt]] = 1.0;
+        }
+        while (smallCnt > 0) {
+            probability[small[--smallCnt]] = 1.0;
+        }
+    }
+
+    public boolean isEmpty() {
+        return outcomes.length == 0;
+    }
+
+    public int sample(Random random) {
+        int i = random.nextInt(outcomes.length);
+        return random.nextDouble() < probability[i] ? outcomes[i] : outcomes[alias[i]];
+    }
+}
@@ -1,43 +1,248 @@
 package mcjty.rftoolsdim.modules.dimlets.data;
 
+import io.netty.buffer.Unpooled;
 import mcjty.lib.varia.LevelTools;
+import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptorCache;
 import mcjty.rftoolsdim.modules.knowledge.data.DimletPattern;
 import mcjty.rftoolsdim.modules.knowledge.data.KnowledgeManager;
+import net.minecraft.block.Block;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
 import net.minecraft.world.World;
-import org.apache.commons.lang3.tuple.Pair;
+import net.minecraftforge.registries.ForgeRegistries;
 
 import javax.annotation.Nullable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class DimletDictionary {
 
-    private static final DimletDictionary INSTANCE = new DimletDictionary();
+    // Replaced as a whole when the dimlet packages are (re)loaded. A published dictionary is frozen:
+    // all indices are built before it is published and it is never changed after that. This makes it
+    // safe to use from the worldgen threads without locking
+    private static volatile DimletDictionary instance = create().freeze();
+
+    // Set when all indices are built. After this the dictionary can't be changed anymore
+    private boolean frozen = false;
 
     private final Map<DimletKey, DimletSettings> dimlets = new HashMap<>();
-    private final Map<DimletRarity, List<DimletKey>> dimletsByRarity = new HashMap<>(); // Only dimlets with worldgen == true
-    private final Map<Pair<DimletType, DimletRarity>, List<DimletKey>> dimletsByRarityAndType = new HashMap<>();
+
+    // Dense numeric ids for all dimlets. On the server these come from the DimletIdMapping of the world,
+    // on the client they are synced together with the dimlets. Settings are null for ids of dimlets
+    // that are no longer in any package
+    private final Map<DimletKey, Integer> idByKey = new HashMap<>();
+    private final List<DimletKey> keyById = new ArrayList<>();
+    private final List<DimletSettings> settingsById = new ArrayList<>();
+
+    // Ids of dimlets with worldgen == true by rarity (index is the ordinal of the rarity)
+    private int[][] idsByRarity = new int[DimletRarity.values().length][];
+    // Same but also by type ([type ordinal][rarity ordinal])
+    private int[][][] idsByRarityAndType = new int[DimletType.values().length][][];
+    // Reverse lookups from the block, fluid or biome to the dimlet for it
+    private final Map<Block, DimletKey> blockDimlets = new HashMap<>();
+    private final Map<Fluid, DimletKey> fluidDimlets = new HashMap<>();
+    private final Map<ResourceLocation, DimletKey> biomeDimlets = new HashMap<>();
+    // Alias tables for random selection by rarity and by type (index is the ordinal)
+    private AliasTable[] rarityTables = new AliasTable[DimletRarity.values().length];
+    private AliasTable[] typeTables = new AliasTable[DimletType.values().length];
+    // Hash of all dimlets with their ids and settings. Used to check if the client has this dictionary cached
+    private String hash = null;
+    // Dimlets by the ingredients needed to craft them. Built when first needed
+    private Map<CraftKey, List<DimletKey>> craftIndex = null;
+
+    private static class CraftKey {
+        private final DimletType type;
+        private final Item memoryPart;
+        private final Item essence;
+        @Nullable private final String absorbed;   // Only for absorber essences
+
+        public CraftKey(DimletType type, Item memoryPart, Item essence, @Nullable String absorbed) {
+            this.type = type;
+            this.memoryPart = memoryPart;
+            this.essence = essence;
+            this.absorbed = absorbed;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CraftKey craftKey = (CraftKey) o;
+            return type == craftKey.type &&
+                    memoryPart == craftKey.memoryPart &&
+                    essence == craftKey.essence &&
+                    Objects.equals(absorbed, craftKey.absorbed);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, memoryPart, essence, absorbed);
+        }
+    }
 
     public static DimletDictionary get() {
-        return INSTANCE;
+        return instance;
+    }
+
+    /// Create a new empty dictionary that can be filled and then published with set()
+    public static DimletDictionary create() {
+        return new DimletDictionary();
+    }
+
+    /// Create a new dictionary from the given packages. This doesn't change the current dictionary
+    /// and can be called from another thread. 'reservedIds' are the ids used by the world
+    public static DimletDictionary load(List<DimletKey> reservedIds, List<String> filenames) {
+        DimletDictionary dictionary = new DimletDictionary();
+        dictionary.reserveIds(reservedIds);
+        dictionary.readPackages(filenames);
+        return dictionary.freeze();
+    }
+
+    /// Make the given dictionary the current one
+    public static void set(DimletDictionary dictionary) {
+        instance = dictionary.freeze();
+        CompiledDescriptorCache.clear();
+    }
+
+    /// Build all indices that are otherwise built when first needed and make the dictionary read-only
+    private DimletDictionary freeze() {
+        if (!frozen) {
+            for (DimletRarity rarity : DimletRarity.values()) {
+                rarityTables[rarity.ordinal()] = createRarityTable(rarity);
+            }
+            for (DimletType type : DimletType.values()) {
+                typeTables[type.ordinal()] = createTypeTable(type);
+            }
+            getCraftIndex();
+            getHash();
+            frozen = true;
+        }
+        return this;
+    }
+
+    private void clearIndices() {
+        idsByRarity = new int[DimletRarity.values().length][];
+        idsByRarityAndType = new int[DimletType.values().length][][];
+        rarityTables = new AliasTable[DimletRarity.values().length];
+        typeTables = new AliasTable[DimletType.values().length];
+        craftIndex = null;
+        hash = null;
+    }
+
+    public String getHash() {
+        if (hash == null) {
+            PacketBuffer buf = new PacketBuffer(Unpooled.buffer());
+            for (int id = 0 ; id < keyById.size() ; id++) {
+                DimletSettings settings = settingsById.get(id);
+                if (settings != null) {
+                    buf.writeVarInt(id);
+                    keyById.get(id).toBytes(buf);
+                    // The persistent form so that the hash doesn't depend on the numeric item ids
+                    settings.toPersistentBytes(buf);
+                }
+            }
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(buf.nioBuffer());
+                hash = DimletPackageCache.toHex(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return hash;
     }
 
-    public void reset() {
-        dimlets.clear();
-        dimletsByRarity.clear();
-        dimletsByRarityAndType.clear();
+    /// Reserve the ids from a saved mapping (index in the list is the id). Must be called
+    /// before the packages are read
+    public void reserveIds(List<DimletKey> keys) {
+        for (int id = 0 ; id < keys.size() ; id++) {
+            setId(id, keys.get(id));
+        }
     }
 
     public boolean register(DimletKey key, DimletSettings settings) {
+        Integer id = idByKey.get(key);
+        return register(id == null ? keyById.size() : id, key, settings);
+    }
+
+    /// Register a dimlet with a known id (client side sync)
+    public boolean register(int id, DimletKey key, DimletSettings settings) {
+        if (frozen) {
+            throw new IllegalStateException("The dimlet dictionary can't be changed after it is published!");
+        }
         if (DimletTools.isValidDimlet(key)) {
             dimlets.put(key, settings);
+            indexReverse(key);
+            setId(id, key);
+            settingsById.set(id, settings);
+            clearIndices();
             return true;
         }
         return false;
     }
 
+    private void indexReverse(DimletKey key) {
+        switch (key.getType()) {
+            case BLOCK:
+                blockDimlets.put(ForgeRegistries.BLOCKS.getValue(new ResourceLocation(key.getKey())), key);
+                break;
+            case FLUID:
+                fluidDimlets.put(ForgeRegistries.FLUIDS.getValue(new ResourceLocation(key.getKey())), key);
+                break;
+            case BIOME:
+                biomeDimlets.put(new ResourceLocation(key.getKey()), key);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void setId(int id, DimletKey key) {
+        Integer oldId = idByKey.get(key);
+        if (oldId != null && oldId != id) {
+            keyById.set(oldId, null);
+            settingsById.set(oldId, null);
+        }
+        while (keyById.size() <= id) {
+            keyById.add(null);
+            settingsById.add(null);
+        }
+        DimletKey oldKey = keyById.get(id);
+        if (oldKey != null && !oldKey.equals(key)) {
+            idByKey.remove(oldKey);
+        }
+        keyById.set(id, key);
+        idByKey.put(key, id);
+    }
+
+    /// Return the numeric id of a dimlet or -1 if the dimlet is not known
+    public int getId(DimletKey key) {
+        Integer id = idByKey.get(key);
+        return id == null ? -1 : id;
+    }
+
+    @Nullable
+    public DimletKey getKey(int id) {
+        return id >= 0 && id < keyById.size() ? keyById.get(id) : null;
+    }
+
+    @Nullable
+    public DimletSettings getSettings(int id) {
+        return id >= 0 && id < settingsById.size() ? settingsById.get(id) : null;
+    }
+
+    /// All keys by id (this is what is persisted in the DimletIdMapping). Can contain null for unused ids on the client
+    public List<DimletKey> getKeysById() {
+        return Collections.unmodifiableList(keyById);
+    }
+
     public Set<DimletKey> getDimlets() {
-        return dimlets.keySet();
+        return Collections.unmodifiableSet(dimlets.keySet());
     }
 
     public DimletSettings getSettings(DimletKey key) {
@@ -46,17 +251,19 @@ public class DimletDictionary {
 
     public DimletKey tryCraft(World world, DimletType type, ItemStack memoryPart, ItemStack energyPart, ItemStack essence,
                               DimletPattern pattern) {
-        for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
-            DimletKey key = entry.getKey();
-            if (type.equals(key.getType())) {
-                if (memoryPart.sameItem(DimletTools.getNeededMemoryPart(key))) {
-                    if (energyPart.sameItem(DimletTools.getNeededEnergyPart(key))) {
-                        ItemStack neededEssence = DimletTools.getNeededEssence(key, entry.getValue());
-                        if (DimletTools.isFullEssence(essence, neededEssence, key.getKey())) {
-                            DimletPattern neededPattern = KnowledgeManager.get().getPattern(LevelTools.getOverworld(world).getSeed(), key);
-                            if (Objects.equals(neededPattern, pattern)) {
-                                return key;
-                            }
+        CraftKey craftKey = new CraftKey(type, memoryPart.getItem(), essence.getItem(), DimletTools.getAbsorbedKey(essence));
+        List<DimletKey> candidates = getCraftIndex().get(craftKey);
+        if (candidates == null) {
+            return null;
+        }
+        for (DimletKey key : candidates) {
+            if (memoryPart.sameItem(DimletTools.getNeededMemoryPart(key))) {
+                if (energyPart.sameItem(DimletTools.getNeededEnergyPart(key))) {
+                    ItemStack neededEssence = DimletTools.getNeededEssence(key, dimlets.get(key));
+                    if (DimletTools.isFullEssence(essence, neededEssence, key.getKey())) {
+                        DimletPattern neededPattern = KnowledgeManager.get().getPattern(LevelTools.getOverworld(world).getSeed(), key);
+                        if (Objects.equals(neededPattern, pattern)) {
+                            return key;
                         }
                     }
                 }
@@ -66,154 +273,196 @@ public class DimletDictionary {
         return null;
     }
 
+    private Map<CraftKey, List<DimletKey>> getCraftIndex() {
+        if (craftIndex == null) {
+            craftIndex = new HashMap<>();
+            for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
+                DimletKey key = entry.getKey();
+                Item essence = DimletTools.getNeededEssence(key, entry.getValue()).getItem();
+                // Absorbers only work if they contain the block/biome/fluid of this dimlet
+                String absorbed = DimletTools.isAbsorber(essence) ? key.getKey() : null;
+                CraftKey craftKey = new CraftKey(key.getType(), DimletTools.getNeededMemoryPart(key).getItem(), essence, absorbed);
+                craftIndex.computeIfAbsent(craftKey, k -> new ArrayList<>()).add(key);
+            }
+        }
+        return craftIndex;
+    }
+
     @Nullable
     /// This only returns dimlets with worldgen == rue
     public DimletKey getRandomDimlet(DimletRarity rarity, Random random) {
-        List<DimletKey> keys = getDimletsByRarity(rarity);
-        if (keys.isEmpty()) {
+        AliasTable table = rarityTables[rarity.ordinal()];
+        if (table == null) {
+            table = createRarityTable(rarity);
+            rarityTables[rarity.ordinal()] = table;
+        }
+        if (table.isEmpty()) {
             return null;
         }
-        if (keys.size() == 1) {
-            return keys.get(0);
+        return keyById.get(table.sample(random));
+    }
+
+    // The old implementation did a few attempts to find something that isn't a block (to give less chance
+    // to block dimlets) and returned the last block if that failed. This table gives the same probabilities
+    private AliasTable createRarityTable(DimletRarity rarity) {
+        int[] ids = getDimletsByRarity(rarity);
+        int n = ids.length;
+        if (n == 0) {
+            return AliasTable.EMPTY;
+        }
+        int blocks = (int) Arrays.stream(ids).filter(id -> keyById.get(id).getType() == DimletType.BLOCK).count();
+        int others = n - blocks;
+        double[] weights = new double[n];
+        if (blocks == 0 || others == 0) {
+            Arrays.fill(weights, 1.0);
         } else {
-            // There are multiple choices, try to give less chance to block dimlets. Do a few attempts to find something else
-            DimletKey dimletKey = null;
-            for (int i = 0 ; i < Math.max(2, Math.min(10, keys.size() / 20)) ; i++) {
-                dimletKey = keys.get(random.nextInt(keys.size()));
-                if (dimletKey.getType() != DimletType.BLOCK) {
-                    return dimletKey;
+            int attempts = Math.max(2, Math.min(10, n / 20));
+            double allBlocks = Math.pow((double) blocks / n, attempts);
+            for (int i = 0 ; i < n ; i++) {
+                if (keyById.get(ids[i]).getType() == DimletType.BLOCK) {
+                    weights[i] = allBlocks / blocks;
+                } else {
+                    weights[i] = (1.0 - allBlocks) / others;
                 }
             }
-            return dimletKey;
         }
+        return new AliasTable(ids, weights);
     }
 
-
     @Nullable
     // This only returns dimlet with worldgen == true
     public DimletKey getRandomDimlet(DimletType type, Random random) {
-        DimletKey key = getRandomDimletInternal(type, DimletRarity.COMMON, random);
-        if (key == null) {
-            key = getRandomDimletInternal(type, DimletRarity.UNCOMMON, random);
-            if (key == null) {
-                key = getRandomDimletInternal(type, DimletRarity.RARE, random);
-                if (key == null) {
-                    key = getRandomDimletInternal(type, DimletRarity.LEGENDARY, random);
-                }
-            }
+        AliasTable table = typeTables[type.ordinal()];
+        if (table == null) {
+            table = createTypeTable(type);
+            typeTables[type.ordinal()] = table;
+        }
+        if (table.isEmpty()) {
+            return null;
         }
-        return key;
+        int id = table.sample(random);
+        return id == -1 ? null : keyById.get(id);
     }
 
-    private DimletKey getRandomDimletInternal(DimletType type, DimletRarity startAt, Random random) {
-        DimletRarity rarity = startAt;
-        if (random.nextFloat() < .1f) {
-            rarity = DimletRarity.UNCOMMON;
-            if (random.nextFloat() < .1f) {
-                rarity = DimletRarity.RARE;
-                if (random.nextFloat() < .1f) {
-                    rarity = DimletRarity.LEGENDARY;
+    // Chance that a higher rarity is tried when selecting a random dimlet of a given type. The old
+    // implementation used 'random.nextFloat() < .1f' so we use the exact chance for that
+    private static final double HIGHER_RARITY_CHANCE = Math.ceil(.1f * (1 << 24)) / (1 << 24);
+
+    // Selecting a random dimlet of a type starts at common. With a small chance a higher rarity is tried
+    // instead. If there are no dimlets with that rarity lower rarities are tried. If that gives nothing it
+    // is tried again starting at a higher rarity. This table gives the same probabilities (-1 means nothing)
+    private AliasTable createTypeTable(DimletType type) {
+        DimletRarity[] rarities = DimletRarity.values();
+        double[] rarityChance = new double[rarities.length];
+        double notFound = 1.0;
+        for (DimletRarity start : rarities) {
+            double p = HIGHER_RARITY_CHANCE;
+            double[] picked = new double[rarities.length];
+            picked[start.ordinal()] += 1 - p;
+            picked[DimletRarity.UNCOMMON.ordinal()] += p * (1 - p);
+            picked[DimletRarity.RARE.ordinal()] += p * p * (1 - p);
+            picked[DimletRarity.LEGENDARY.ordinal()] += p * p * p;
+            double nothing = 0;
+            for (int r = 0 ; r < rarities.length ; r++) {
+                int found = r;
+                while (found >= 0 && getDimletsByRarityAndType(type, rarities[found]).length == 0) {
+                    found--;
                 }
-            }
-        }
-        while (true) {
-            List<DimletKey> keys = getDimletsByRarityAndType(type, rarity);
-            if (!keys.isEmpty()) {
-                if (keys.size() == 1) {
-                    return keys.get(0);
+                if (found >= 0) {
+                    rarityChance[found] += notFound * picked[r];
                 } else {
-                    return keys.get(random.nextInt(keys.size()));
+                    nothing += picked[r];
                 }
             }
-            switch (rarity) {
-                case COMMON:
-                    return null;
-                case UNCOMMON:
-                    rarity = DimletRarity.COMMON;
-                    break;
-                case RARE:
-                    rarity = DimletRarity.UNCOMMON;
-                    break;
-                case LEGENDARY:
-                    rarity = DimletRarity.RARE;
-                    break;
+            notFound *= nothing;
+        }
+
+        List<Integer> outcomes = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (DimletRarity rarity : rarities) {
+            int[] ids = getDimletsByRarityAndType(type, rarity);
+            for (int id : ids) {
+                outcomes.add(id);
+                weights.add(rarityChance[rarity.ordinal()] / ids.length);
             }
         }
+        if (outcomes.isEmpty()) {
+            return AliasTable.EMPTY;
+        }
+        if (notFound > 0) {
+            outcomes.add(-1);
+            weights.add(notFound);
+        }
+        return new AliasTable(outcomes.stream().mapToInt(Integer::intValue).toArray(),
+                weights.stream().mapToDouble(Double::doubleValue).toArray());
     }
 
     // This returns only dimlets with worldgen == true
-    private List<DimletKey> getDimletsByRarity(DimletRarity rarity) {
-        if (!dimletsByRarity.containsKey(rarity)) {
-            List<DimletKey> dimletKeys = new ArrayList<>();
-            for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
-                if (entry.getValue().getRarity() == rarity) {
-                    DimletKey key = entry.getKey();
-                    if (getSettings(key).isWorldgen()) {
-                        dimletKeys.add(key);
-                    }
-                }
-            }
-            dimletsByRarity.put(rarity, dimletKeys);
+    private int[] getDimletsByRarity(DimletRarity rarity) {
+        int[] ids = idsByRarity[rarity.ordinal()];
+        if (ids == null) {
+            ids = IntStream.range(0, settingsById.size())
+                    .filter(id -> {
+                        DimletSettings settings = settingsById.get(id);
+                        return settings != null && settings.getRarity() == rarity && settings.isWorldgen();
+                    })
+                    .toArray();
+            idsByRarity[rarity.ordinal()] = ids;
         }
-        return dimletsByRarity.get(rarity);
+        return ids;
     }
 
-    private List<DimletKey> getDimletsByRarityAndType(DimletType type, DimletRarity rarity) {
-        Pair<DimletType, DimletRarity> pair = Pair.of(type, rarity);
-        if (!dimletsByRarityAndType.containsKey(pair)) {
-            List<DimletKey> dimletKeys = new ArrayList<>();
-            List<DimletKey> dimletsByRarity = getDimletsByRarity(rarity);
-            for (DimletKey key : dimletsByRarity) {
-                if (key.getType() == type) {
-                    dimletKeys.add(key);
-                }
-            }
-            dimletsByRarityAndType.put(pair, dimletKeys);
+    private int[] getDimletsByRarityAndType(DimletType type, DimletRarity rarity) {
+        int[][] byRarity = idsByRarityAndType[type.ordinal()];
+        if (byRarity == null) {
+            byRarity = new int[DimletRarity.values().length][];
+            idsByRarityAndType[type.ordinal()] = byRarity;
         }
-        return dimletsByRarityAndType.get(pair);
+        int[] ids = byRarity[rarity.ordinal()];
+        if (ids == null) {
+            ids = Arrays.stream(getDimletsByRarity(rarity))
+                    .filter(id -> keyById.get(id).getType() == type)
+                    .toArray();
+            byRarity[rarity.ordinal()] = ids;
+        }
+        return ids;
     }
 
 
-    public void readPackage(String filename) {
-        DimletPackages.readPackage(filename, this::register);
+    public void readPackages(List<String> filenames) {
+        DimletPackageCache.load(filenames, this::register);
     }
 
     @Nullable
     public DimletKey getBlockDimlet(String block) {
-        for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
-            DimletKey key = entry.getKey();
-            if (key.getType().equals(DimletType.BLOCK)) {
-                if (Objects.equals(key.getKey(), block)) {
-                    return key;
-                }
-            }
-        }
-        return null;
+        DimletKey key = new DimletKey(DimletType.BLOCK, block);
+        return dimlets.containsKey(key) ? key : null;
+    }
+
+    @Nullable
+    public DimletKey getBlockDimlet(Block block) {
+        return blockDimlets.get(block);
     }
 
     @Nullable
     public DimletKey getFluidDimlet(String fluid) {
-        for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
-            DimletKey key = entry.getKey();
-            if (key.getType().equals(DimletType.FLUID)) {
-                if (Objects.equals(key.getKey(), fluid)) {
-                    return key;
-                }
-            }
-        }
-        return null;
+        DimletKey key = new DimletKey(DimletType.FLUID, fluid);
+        return dimlets.containsKey(key) ? key : null;
+    }
+
+    @Nullable
+    public DimletKey getFluidDimlet(Fluid fluid) {
+        return fluidDimlets.get(fluid);
     }
 
     @Nullable
     public DimletKey getBiomeDimlet(String biomeId) {
-        for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
-            DimletKey key = entry.getKey();
-            if (key.getType().equals(DimletType.BIOME)) {
-                if (Objects.equals(key.getKey(), biomeId)) {
-                    return key;
-                }
-            }
-        }
-        return null;
+        DimletKey key = new DimletKey(DimletType.BIOME, biomeId);
+        return dimlets.containsKey(key) ? key : null;
+    }
+
+    @Nullable
+    public DimletKey getBiomeDimlet(ResourceLocation biomeId) {
+        return biomeDimlets.get(biomeId);
     }
 }
@@ -0,0 +1,65 @@
+package mcjty.rftoolsdim.modules.dimlets.data;
+
+import mcjty.lib.worlddata.AbstractWorldData;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.INBT;
+import net.minecraft.nbt.ListNBT;
+import net.minecraft.nbt.StringNBT;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.Constants;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The mapping of dimlet keys to numeric ids (the index in the list) as it is saved with the world.
+ * Ids are never reused so that a dimlet keeps the same id when packages are added or removed
+ */
+public class DimletIdMapping extends AbstractWorldData<DimletIdMapping> {
+
+    private static final String NAME = "RFToolsDimletIds";
+
+    private final List<DimletKey> keys = new ArrayList<>();
+
+    public DimletIdMapping(String name) {
+        super(name);
+    }
+
+    @Nonnull
+    public static DimletIdMapping get(World world) {
+        return getData(world, () -> new DimletIdMapping(NAME), NAME);
+    }
+
+    public List<DimletKey> getKeys() {
+        return keys;
+    }
+
+    public void update(List<DimletKey> newKeys) {
+        if (!keys.equals(newKeys)) {
+            keys.clear();
+            keys.addAll(newKeys);
+            setDirty();
+        }
+    }
+
+    @Override
+    public void load(CompoundNBT tag) {
+        keys.clear();
+        ListNBT list = tag.getList("keys", Constants.NBT.TAG_STRING);
+        for (INBT inbt : list) {
+            keys.add(new DimletKey(inbt.getAsString()));
+        }
+    }
+
+    @Nonnull
+    @Override
+    public CompoundNBT save(@Nonnull CompoundNBT compound) {
+        ListNBT list = new ListNBT();
+        for (DimletKey key : keys) {
+            list.add(StringNBT.valueOf(key.serialize()));
+        }
+        compound.put("keys", list);
+        return compound;
+    }
+}
@@ -8,21 +8,26 @@ public class DimletKey implements Comparable<DimletKey> {
 
     private final DimletType type;
     private final String key;
+    // Dimlet keys are used as map keys a lot so the hash is only calculated once
+    private final int hash;
 
     public DimletKey(DimletType type, String key) {
         this.type = type;
         this.key = key;
+        this.hash = Objects.hash(type, key);
     }
 
     public DimletKey(PacketBuffer buf) {
         type = DimletType.values()[buf.readInt()];
         key = buf.readUtf(32767);
+        hash = Objects.hash(type, key);
     }
 
     public DimletKey(String serialized) {
         String[] split = serialized.split("#");
         this.type = DimletType.byName(split[0]);
         this.key = split[1];
+        this.hash = Objects.hash(type, key);
     }
 
     public DimletType getType() {
@@ -47,13 +52,13 @@ public class DimletKey implements Comparable<DimletKey> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         DimletKey dimletKey = (DimletKey) o;
-        return type == dimletKey.type &&
+        return hash == dimletKey.hash && type == dimletKey.type &&
                 Objects.equals(key, dimletKey.key);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, key);
+        return hash;
     }
 
     @Override
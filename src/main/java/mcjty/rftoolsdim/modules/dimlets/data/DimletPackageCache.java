@@ -0,0 +1,152 @@
+package mcjty.rftoolsdim.modules.dimlets.data;
+
+import io.netty.buffer.Unpooled;
+import mcjty.rftoolsdim.RFToolsDim;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.forgespi.language.IModInfo;
+import org.apache.commons.lang3.tuple.Pair;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Binary cache of the dimlets that were found in the dimlet packages. The cache is keyed by a hash of
+ * the contents of all packages and the list of loaded mods (with versions), because the mods decide which
+ * dimlets are valid. If the hash matches the packages don't have to be parsed again
+ */
+public class DimletPackageCache {
+
+    private static final String CACHE_FILE = "dimletcache.bin";
+    private static final int FORMAT_VERSION = 2;
+
+    /// Read the dimlets from the cache if it is still valid. Otherwise read the packages and update the cache
+    public static void load(List<String> filenames, BiFunction<DimletKey, DimletSettings, Boolean> consumer) {
+        String hash = computeHash(filenames);
+        if (hash != null) {
+            List<Pair<DimletKey, DimletSettings>> cached = readCache(hash);
+            if (cached != null) {
+                int cnt = 0;
+                for (Pair<DimletKey, DimletSettings> pair : cached) {
+                    if (Boolean.TRUE.equals(consumer.apply(pair.getLeft(), pair.getRight()))) {
+                        cnt++;
+                    }
+                }
+                RFToolsDim.setup.getLogger().info("Read " + cnt + " dimlets from the dimlet package cache");
+                return;
+            }
+        }
+
+        // Keep the valid dimlets in the order they were first registered. A later package replaces the settings
+        Map<DimletKey, DimletSettings> valid = new LinkedHashMap<>();
+        DimletPackages.readPackages(filenames, (key, settings) -> {
+            Boolean success = consumer.apply(key, settings);
+            if (Boolean.TRUE.equals(success)) {
+                valid.put(key, settings);
+            }
+            return success;
+        });
+        if (hash != null) {
+            writeCache(hash, valid);
+        }
+    }
+
+    private static Path getCachePath() {
+        return FMLPaths.CONFIGDIR.get().resolve("rftoolsdim").resolve(CACHE_FILE);
+    }
+
+    @Nullable
+    private static String computeHash(List<String> filenames) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+            byte[] buffer = new byte[65536];
+            for (String filename : filenames) {
+                digest.update(filename.getBytes(StandardCharsets.UTF_8));
+                try (InputStream stream = DimletPackages.openPackage(filename)) {
+                    int len;
+                    while ((len = stream.read(buffer)) > 0) {
+                        digest.update(buffer, 0, len);
+                    }
+                }
+            }
+            List<IModInfo> mods = new ArrayList<>(ModList.get().getMods());
+            mods.sort(Comparator.comparing(IModInfo::getModId));
+            for (IModInfo mod : mods) {
+                digest.update((mod.getModId() + "@" + mod.getVersion() + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            return toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException | IllegalStateException e) {
+            // Missing or unreadable packages will give a proper error when they are parsed
+            RFToolsDim.setup.getLogger().warn("Could not compute the hash of the dimlet packages: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static String toHex(byte[] data) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : data) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    @Nullable
+    private static List<Pair<DimletKey, DimletSettings>> readCache(String hash) {
+        Path path = getCachePath();
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            // Read into a heap buffer. A mapped file can't be replaced (on Windows) until the mapping is collected
+            PacketBuffer buf = new PacketBuffer(Unpooled.wrappedBuffer(Files.readAllBytes(path)));
+            if (buf.readInt() != FORMAT_VERSION || !hash.equals(buf.readUtf(64))) {
+                return null;
+            }
+            int size = buf.readVarInt();
+            List<Pair<DimletKey, DimletSettings>> dimlets = new ArrayList<>(size);
+            for (int i = 0 ; i < size ; i++) {
+                DimletKey key = new DimletKey(buf);
+                DimletSettings settings = DimletSettings.fromPersistentBytes(buf);
+                dimlets.add(Pair.of(key, settings));
+            }
+            return dimlets;
+        } catch (IOException | RuntimeException e) {
+            RFToolsDim.setup.getLogger().warn("Error reading the dimlet package cache, reading packages instead: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeCache(String hash, Map<DimletKey, DimletSettings> dimlets) {
+        PacketBuffer buf = new PacketBuffer(Unpooled.buffer());
+        buf.writeInt(FORMAT_VERSION);
+        buf.writeUtf(hash);
+        buf.writeVarInt(dimlets.size());
+        for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
+            entry.getKey().toBytes(buf);
+            entry.getValue().toPersistentBytes(buf);
+        }
+        byte[] data = new byte[buf.readableBytes()];
+        buf.readBytes(data);
+
+        Path path = getCachePath();
+        Path tmp = path.resolveSibling(CACHE_FILE + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(tmp, data);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            RFToolsDim.setup.getLogger().warn("Could not write the dimlet package cache: " + e.getMessage());
+        }
+    }
+}
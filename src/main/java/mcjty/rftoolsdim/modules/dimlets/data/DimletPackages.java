@@ -1,6 +1,7 @@
 package mcjty.rftoolsdim.modules.dimlets.data;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
 import mcjty.rftoolsdim.RFToolsDim;
 import net.minecraft.block.Block;
 import net.minecraft.block.Blocks;
@@ -11,11 +12,18 @@ import net.minecraft.world.biome.Biome;
 import net.minecraftforge.common.Tags;
 import net.minecraftforge.fml.loading.FMLPaths;
 import net.minecraftforge.registries.ForgeRegistries;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiFunction;
 
 public class DimletPackages {
@@ -99,50 +107,124 @@ public class DimletPackages {
         }
     }
 
-    public static void readPackage(String filename, BiFunction<DimletKey, DimletSettings, Boolean> consumer) {
-        InputStream inputStream = null;
+    /// Read the given packages in parallel. The worker threads only parse the json. The settings (which need
+    /// the item registry for the essences) are built and given to the consumer on the calling thread in the
+    /// order of the packages so that later packages can override dimlets of earlier packages
+    public static void readPackages(List<String> filenames, BiFunction<DimletKey, DimletSettings, Boolean> consumer) {
+        if (filenames.isEmpty()) {
+            return;
+        }
+        int threads = Math.min(filenames.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "RFToolsDim-PackageLoader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<ParsedPackage>> futures = new ArrayList<>();
+            for (String filename : filenames) {
+                futures.add(executor.submit(() -> parsePackage(filename)));
+            }
+            for (Future<ParsedPackage> future : futures) {
+                ParsedPackage parsed = getParsedPackage(future);
+                int cnt = 0;
+                for (Pair<DimletKey, DimletSettings.Builder> pair : parsed.dimlets) {
+                    Boolean success = consumer.apply(pair.getLeft(), pair.getRight().build());
+                    if (Boolean.TRUE.equals(success)) {
+                        cnt++;
+                    }
+                }
+                RFToolsDim.setup.getLogger().info("Reading dimlet package: " + parsed.filename + ", " + cnt + " valid dimlets found ("
+                        + parsed.parseTimeMillis + "ms)");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static class ParsedPackage {
+        private final String filename;
+        private final List<Pair<DimletKey, DimletSettings.Builder>> dimlets;
+        private final long parseTimeMillis;
+
+        public ParsedPackage(String filename, List<Pair<DimletKey, DimletSettings.Builder>> dimlets, long parseTimeMillis) {
+            this.filename = filename;
+            this.dimlets = dimlets;
+            this.parseTimeMillis = parseTimeMillis;
+        }
+    }
+
+    private static ParsedPackage getParsedPackage(Future<ParsedPackage> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading dimlet packages!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error reading dimlet packages!", e.getCause());
+        }
+    }
+
+    private static ParsedPackage parsePackage(String filename) {
+        long start = System.currentTimeMillis();
+        List<Pair<DimletKey, DimletSettings.Builder>> dimlets = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(openPackage(filename), StandardCharsets.UTF_8)))) {
+            // Accept the same (lenient) json as the tree parser that was used before
+            reader.setLenient(true);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                dimlets.add(parseDimlet(reader));
+            }
+            reader.endArray();
+        } catch (IOException ex) {
+            RFToolsDim.setup.getLogger().error("Error loading dimlet package: " + filename);
+            throw new UncheckedIOException(ex);
+        }
+        return new ParsedPackage(filename, dimlets, System.currentTimeMillis() - start);
+    }
 
+    private static Pair<DimletKey, DimletSettings.Builder> parseDimlet(JsonReader reader) throws IOException {
+        String type = null;
+        String key = null;
+        DimletSettings.Builder builder = DimletSettings.builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("type".equals(name)) {
+                type = reader.nextString();
+            } else if ("key".equals(name)) {
+                key = reader.nextString();
+            } else if (!DimletSettings.parseField(builder, name, reader)) {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (type == null || key == null) {
+            throw new IllegalStateException("Dimlet without type or key!");
+        }
+        return Pair.of(new DimletKey(DimletType.byName(type), key), builder);
+    }
+
+    static InputStream openPackage(String filename) {
         Path configPath = FMLPaths.CONFIGDIR.get();
         new File(configPath + File.separator + "rftoolsdim").mkdirs();
         File file = new File(configPath + File.separator + "rftoolsdim" + File.separator + filename);
         if (file.exists()) {
             try {
-                inputStream = new FileInputStream(file);
+                return new FileInputStream(file);
             } catch (FileNotFoundException e) {
                 throw new UncheckedIOException(e);
             }
         }
 
+        InputStream inputStream = RFToolsDim.class.getResourceAsStream("/data/rftoolsdim/dimletpackages/" + filename);
         if (inputStream == null) {
-            inputStream = RFToolsDim.class.getResourceAsStream("/data/rftoolsdim/dimletpackages/" + filename);
-            if (inputStream == null) {
-                RFToolsDim.setup.getLogger().error("Can't find dimlet package: " + filename);
-                throw new IllegalStateException("Can't find dimlet package: " + filename);
-            }
+            RFToolsDim.setup.getLogger().error("Can't find dimlet package: " + filename);
+            throw new IllegalStateException("Can't find dimlet package: " + filename);
         }
-
-        int cnt = 0;
-        try(BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            JsonParser parser = new JsonParser();
-            JsonElement root = parser.parse(br);
-            JsonArray array = root.getAsJsonArray();
-            for (JsonElement element : array) {
-                JsonObject object = element.getAsJsonObject();
-                String type = object.getAsJsonPrimitive("type").getAsString();
-                String key = object.getAsJsonPrimitive("key").getAsString();
-                DimletKey dimletKey = new DimletKey(DimletType.byName(type), key);
-                DimletSettings settings = DimletSettings.parse(object);
-                Boolean success = consumer.apply(dimletKey, settings);
-                if (Boolean.TRUE.equals(success)) {
-                    cnt++;
-                }
-            }
-
-        } catch (IOException ex) {
-            RFToolsDim.setup.getLogger().error("Error loading dimlet package: " + filename);
-            throw new UncheckedIOException(ex);
-        }
-        RFToolsDim.setup.getLogger().info("Reading dimlet package: " + filename + ", " + cnt + " valid dimlets found");
-
+        return inputStream;
     }
 }
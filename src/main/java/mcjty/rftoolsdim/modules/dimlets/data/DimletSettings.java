@@ -1,10 +1,20 @@
 package mcjty.rftoolsdim.modules.dimlets.data;
 
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import mcjty.lib.varia.JSonTools;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
 import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.registries.ForgeRegistries;
+
+import java.io.IOException;
+import java.util.Objects;
 
 public class DimletSettings {
 
@@ -30,23 +40,72 @@ public class DimletSettings {
     }
 
     public DimletSettings(PacketBuffer buf) {
+        this(buf, false);
+    }
+
+    // If 'persistent' is true the essence is stored by registry name instead of by numeric id
+    // (numeric ids can be different in another world)
+    private DimletSettings(PacketBuffer buf, boolean persistent) {
         rarity = DimletRarity.values()[buf.readInt()];
         createCost = buf.readInt();
         maintainCost = buf.readInt();
         tickCost = buf.readInt();
         worldgen = buf.readBoolean();
         dimlet = buf.readBoolean();
-        essence = buf.readItem();
+        essence = persistent ? readEssence(buf) : buf.readItem();
+    }
+
+    /// Read settings that were written with toPersistentBytes()
+    public static DimletSettings fromPersistentBytes(PacketBuffer buf) {
+        return new DimletSettings(buf, true);
     }
 
     public void toBytes(PacketBuffer buf) {
+        toBytes(buf, false);
+    }
+
+    /// Write the settings in a form that doesn't depend on the registry ids of the current world (for files)
+    public void toPersistentBytes(PacketBuffer buf) {
+        toBytes(buf, true);
+    }
+
+    private void toBytes(PacketBuffer buf, boolean persistent) {
         buf.writeInt(rarity.ordinal());
         buf.writeInt(createCost);
         buf.writeInt(maintainCost);
         buf.writeInt(tickCost);
         buf.writeBoolean(worldgen);
         buf.writeBoolean(dimlet);
-        buf.writeItemStack(essence, false);
+        if (persistent) {
+            writeEssence(buf, essence);
+        } else {
+            buf.writeItemStack(essence, false);
+        }
+    }
+
+    private static void writeEssence(PacketBuffer buf, ItemStack stack) {
+        if (stack.isEmpty()) {
+            buf.writeBoolean(false);
+        } else {
+            buf.writeBoolean(true);
+            buf.writeResourceLocation(stack.getItem().getRegistryName());
+            buf.writeVarInt(stack.getCount());
+            buf.writeNbt(stack.getTag());
+        }
+    }
+
+    private static ItemStack readEssence(PacketBuffer buf) {
+        if (!buf.readBoolean()) {
+            return ItemStack.EMPTY;
+        }
+        ResourceLocation id = buf.readResourceLocation();
+        Item item = ForgeRegistries.ITEMS.getValue(id);
+        if (item == null || item == Items.AIR) {
+            throw new IllegalStateException("Unknown essence item " + id + "!");
+        }
+        ItemStack stack = new ItemStack(item, buf.readVarInt());
+        stack.setTag(buf.readNbt());
+        return stack;
     }
 
     public void buildElement(JsonObject jsonObject) {
@@ -82,6 +141,44 @@ public class DimletSettings {
         return builder.build();
     }
 
+    /// Parse a single field of a dimlet from a json stream. Returns false if the field is not a dimlet setting
+    public static boolean parseField(Builder builder, String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case "rarity":
+                builder.rarity(DimletRarity.byName(reader.nextString()));
+                return true;
+            case "create":
+                builder.createCost(reader.nextInt());
+                return true;
+            case "maintain":
+                builder.maintainCost(reader.nextInt());
+                return true;
+            case "ticks":
+                builder.tickCost(reader.nextInt());
+                return true;
+            case "worldgen":
+                builder.worldgen(nextBoolean(reader));
+                return true;
+            case "dimlet":
+                builder.dimlet(nextBoolean(reader));
+                return true;
+            case "essence":
+                // The item stack is only made in build() because this can be called on another thread
+                builder.essenceJson(new JsonParser().parse(reader).getAsJsonObject());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Also accept "true" and "false" as strings like the json tree parser does
+    private static boolean nextBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return Boolean.parseBoolean(reader.nextString());
+        }
+        return reader.nextBoolean();
+    }
+
     public ItemStack getEssence() {
         return essence;
     }
@@ -110,6 +207,25 @@ public class DimletSettings {
         return dimlet;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DimletSettings that = (DimletSettings) o;
+        return createCost == that.createCost &&
+                maintainCost == that.maintainCost &&
+                tickCost == that.tickCost &&
+                worldgen == that.worldgen &&
+                dimlet == that.dimlet &&
+                rarity == that.rarity &&
+                ItemStack.matches(essence, that.essence);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rarity, createCost, maintainCost, tickCost, worldgen, dimlet, essence.getItem());
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -132,6 +248,7 @@ public class DimletSettings {
         private Boolean worldgen;
         private Boolean dimlet;
         private ItemStack essence = ItemStack.EMPTY;
+        private JsonObject essenceJson = null;
 
         private Builder() {
 
@@ -161,6 +278,13 @@ public class DimletSettings {
 
         public Builder essence(ItemStack stack) {
             this.essence = stack;
+            this.essenceJson = null;
+            return this;
+        }
+
+        // The essence as json. It is converted to an item stack in build()
+        public Builder essenceJson(JsonObject json) {
+            this.essenceJson = json;
             return this;
         }
 
@@ -195,6 +319,10 @@ public class DimletSettings {
         }
 
         public DimletSettings build() {
+            if (essenceJson != null) {
+                essence = JSonTools.jsonToItemStack(essenceJson);
+                essenceJson = null;
+            }
             return new DimletSettings(this);
         }
 
@@ -3,6 +3,7 @@ package mcjty.rftoolsdim.modules.dimlets.data;
 import mcjty.lib.varia.Tools;
 import mcjty.rftoolsdim.dimension.AdminDimletType;
 import mcjty.rftoolsdim.modules.dimlets.DimletModule;
+import mcjty.rftoolsdim.modules.dimlets.client.DimletNameCache;
 import mcjty.rftoolsdim.modules.dimlets.items.DimletItem;
 import mcjty.rftoolsdim.modules.essences.EssencesModule;
 import mcjty.rftoolsdim.modules.essences.blocks.BiomeAbsorberTileEntity;
@@ -12,6 +13,7 @@ import net.minecraft.block.Block;
 import net.minecraft.block.Blocks;
 import net.minecraft.client.resources.I18n;
 import net.minecraft.fluid.Fluid;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.util.ResourceLocation;
@@ -282,8 +284,13 @@ public class DimletTools {
         return new StringTextComponent("<unknown>");
     }
 
-    // Use client side!
+    // Use client side! The names are cached
     public static String getReadableName(DimletKey dimletKey) {
+        return DimletNameCache.get(dimletKey);
+    }
+
+    // Use client side! Use getReadableName() instead of this
+    public static String translateReadableName(DimletKey dimletKey) {
         switch (dimletKey.getType()) {
             case TERRAIN:
                 return dimletKey.getKey().toLowerCase();
@@ -354,6 +361,26 @@ public class DimletTools {
         return false;
     }
 
+    public static boolean isAbsorber(Item item) {
+        return item == EssencesModule.BIOME_ABSORBER_ITEM.get()
+                || item == EssencesModule.BLOCK_ABSORBER_ITEM.get()
+                || item == EssencesModule.FLUID_ABSORBER_ITEM.get();
+    }
+
+    /// Return the biome, block or fluid that is absorbed in the given essence (null if it is not an absorber)
+    @Nullable
+    public static String getAbsorbedKey(ItemStack stack) {
+        Item item = stack.getItem();
+        if (item == EssencesModule.BIOME_ABSORBER_ITEM.get()) {
+            return BiomeAbsorberTileEntity.getBiome(stack);
+        } else if (item == EssencesModule.BLOCK_ABSORBER_ITEM.get()) {
+            return BlockAbsorberTileEntity.getBlock(stack);
+        } else if (item == EssencesModule.FLUID_ABSORBER_ITEM.get()) {
+            return FluidAbsorberTileEntity.getFluid(stack);
+        }
+        return null;
+    }
+
     public static boolean isOwnerDimlet(DimletKey dimletKey) {
         return dimletKey != null && dimletKey.getType() == DimletType.ADMIN && dimletKey.getKey().equals(AdminDimletType.OWNER.name().toLowerCase());
     }
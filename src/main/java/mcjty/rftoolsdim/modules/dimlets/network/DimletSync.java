@@ -0,0 +1,68 @@
+package mcjty.rftoolsdim.modules.dimlets.network;
+
+import mcjty.rftoolsdim.RFToolsDim;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletSettings;
+import mcjty.rftoolsdim.setup.RFToolsDimMessages;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.fml.network.PacketDistributor;
+
+import java.util.*;
+
+/**
+ * Sends the dimlet dictionary to clients. On login only the hash of the dictionary is sent. The client
+ * asks for the full dictionary if it doesn't have a cached dictionary with that hash
+ */
+public class DimletSync {
+
+    // Players that were sent a hash and didn't request the dictionary yet. A client may only request the
+    // dictionary once for every hash it gets (i.e. once per login and once per reload). Only used on the server thread
+    private static final Set<UUID> WAITING_FOR_REQUEST = new HashSet<>();
+
+    public static void sendHash(ServerPlayerEntity player) {
+        MinecraftServer server = player.getServer();
+        // The owner of an integrated server shares the dictionary with the server
+        if (server != null && server.isSingleplayerOwner(player.getGameProfile())) {
+            return;
+        }
+        WAITING_FOR_REQUEST.add(player.getUUID());
+        RFToolsDimMessages.INSTANCE.send(PacketDistributor.PLAYER.with(() -> player),
+                new PacketDimletHash(DimletDictionary.get().getHash()));
+    }
+
+    /**
+     * Called when a client asks for the dictionary. Requests from clients that didn't get a new hash are ignored
+     */
+    public static void handleRequest(ServerPlayerEntity player) {
+        if (WAITING_FOR_REQUEST.remove(player.getUUID())) {
+            sendDimlets(player);
+        }
+    }
+
+    public static void forget(ServerPlayerEntity player) {
+        WAITING_FOR_REQUEST.remove(player.getUUID());
+    }
+
+    public static void clear() {
+        WAITING_FOR_REQUEST.clear();
+    }
+
+    private static void sendDimlets(ServerPlayerEntity player) {
+        RFToolsDim.setup.getLogger().info("Sending dimlet packages to " + player.getName().getString());
+        Map<DimletKey, DimletSettings> collected = new HashMap<>();
+        DimletDictionary dictionary = DimletDictionary.get();
+        for (DimletKey key : dictionary.getDimlets()) {
+            collected.put(key, dictionary.getSettings(key));
+            if (collected.size() >= 100) {
+                RFToolsDimMessages.INSTANCE.send(PacketDistributor.PLAYER.with(() -> player),
+                        new PacketSendDimletPackages(collected, ""));
+                collected.clear();
+            }
+        }
+        // The last packet has the hash so that the client knows it is complete and can cache it
+        RFToolsDimMessages.INSTANCE.send(PacketDistributor.PLAYER.with(() -> player),
+                new PacketSendDimletPackages(collected, dictionary.getHash()));
+    }
+}
@@ -0,0 +1,31 @@
+package mcjty.rftoolsdim.modules.dimlets.network;
+
+import mcjty.rftoolsdim.modules.dimlets.client.ClientDimletCache;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+// Server sends the hash of the dimlet dictionary on login. The client requests the dimlets if it doesn't have them cached
+public class PacketDimletHash {
+
+    private final String hash;
+
+    public PacketDimletHash(String hash) {
+        this.hash = hash;
+    }
+
+    public PacketDimletHash(PacketBuffer buf) {
+        hash = buf.readUtf(64);
+    }
+
+    public void toBytes(PacketBuffer buf) {
+        buf.writeUtf(hash);
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> supplier) {
+        NetworkEvent.Context ctx = supplier.get();
+        ctx.enqueueWork(() -> ClientDimletCache.handleHash(hash));
+        ctx.setPacketHandled(true);
+    }
+}
@@ -0,0 +1,31 @@
+package mcjty.rftoolsdim.modules.dimlets.network;
+
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+// Client asks for the full dimlet dictionary because it doesn't have the one of the server cached
+public class PacketRequestDimlets {
+
+    public PacketRequestDimlets() {
+    }
+
+    public PacketRequestDimlets(PacketBuffer buf) {
+    }
+
+    public void toBytes(PacketBuffer buf) {
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> supplier) {
+        NetworkEvent.Context ctx = supplier.get();
+        ctx.enqueueWork(() -> {
+            ServerPlayerEntity player = ctx.getSender();
+            if (player != null) {
+                DimletSync.handleRequest(player);
+            }
+        });
+        ctx.setPacketHandled(true);
+    }
+}
@@ -1,5 +1,6 @@
 package mcjty.rftoolsdim.modules.dimlets.network;
 
+import mcjty.rftoolsdim.modules.dimlets.client.ClientDimletCache;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletSettings;
@@ -14,37 +15,48 @@ import java.util.function.Supplier;
 public class PacketSendDimletPackages {
 
     private final Map<DimletKey, DimletSettings> dimlets;
+    // The numeric id of every dimlet so that the client uses the same ids as the server
+    private final Map<DimletKey, Integer> ids;
+    // Only set on the last packet. The hash of the complete dictionary
+    private final String hash;
 
-    public PacketSendDimletPackages(Map<DimletKey, DimletSettings> dimlets) {
+    public PacketSendDimletPackages(Map<DimletKey, DimletSettings> dimlets, String hash) {
         this.dimlets = new HashMap<>(dimlets);
+        this.hash = hash;
+        this.ids = new HashMap<>(dimlets.size());
+        DimletDictionary dictionary = DimletDictionary.get();
+        for (DimletKey key : dimlets.keySet()) {
+            ids.put(key, dictionary.getId(key));
+        }
     }
 
     public PacketSendDimletPackages(PacketBuffer buf) {
         int size = buf.readInt();
         dimlets = new HashMap<>(size);
+        ids = new HashMap<>(size);
         for (int i = 0 ; i < size ; i++) {
+            int id = buf.readVarInt();
             DimletKey key = new DimletKey(buf);
             DimletSettings settings = new DimletSettings(buf);
             dimlets.put(key, settings);
+            ids.put(key, id);
         }
+        hash = buf.readUtf(64);
     }
 
     public void toBytes(PacketBuffer buf) {
         buf.writeInt(dimlets.size());
         for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
+            buf.writeVarInt(ids.get(entry.getKey()));
             entry.getKey().toBytes(buf);
             entry.getValue().toBytes(buf);
         }
+        buf.writeUtf(hash);
     }
 
     public void handle(Supplier<NetworkEvent.Context> supplier) {
         NetworkEvent.Context ctx = supplier.get();
-        ctx.enqueueWork(() -> {
-            DimletDictionary dictionary = DimletDictionary.get();
-            for (Map.Entry<DimletKey, DimletSettings> entry : dimlets.entrySet()) {
-                dictionary.register(entry.getKey(), entry.getValue());
-            }
-        });
+        ctx.enqueueWork(() -> ClientDimletCache.receive(dimlets, ids, hash));
         ctx.setPacketHandled(true);
     }
 }
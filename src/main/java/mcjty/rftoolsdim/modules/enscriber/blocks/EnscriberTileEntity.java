@@ -22,6 +22,7 @@ import mcjty.rftoolsdim.dimension.data.DimensionData;
 import mcjty.rftoolsdim.dimension.data.DimensionManager;
 import mcjty.rftoolsdim.dimension.data.PersistantDimensionManager;
 import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptor;
+import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptorCache;
 import mcjty.rftoolsdim.dimension.descriptor.DescriptorError;
 import mcjty.rftoolsdim.dimension.descriptor.DimensionDescriptor;
 import mcjty.rftoolsdim.modules.dimensionbuilder.DimensionBuilderModule;
@@ -57,6 +58,12 @@ public class EnscriberTileEntity extends GenericTileEntity {
     private DescriptorError error = DescriptorError.OK;
     private int clientErrorCode = 0;
 
+    // The dimlet in every dimlet slot (null if empty or blacklisted). These are only updated for the slots that
+    // change. The descriptor is validated again lazily when the error is needed (i.e. when the gui is open)
+    private final DimletKey[] slotKeys = new DimletKey[SIZE_DIMLETS];
+    private DimletDictionary slotDictionary = null;     // The dictionary that was used for slotKeys (null if not set yet)
+    private boolean dirty = true;
+
     public static final Lazy<ContainerFactory> CONTAINER_FACTORY = Lazy.of(() -> new ContainerFactory(SIZE_DIMLETS + 1)
             .box(specific(DimletItem::isReadyDimlet), SLOT_DIMLETS, 13, 7, 13, 7)
             .slot(specific(EnscriberTileEntity::isDimensionTab), SLOT_TAB, 13, 142)
@@ -71,7 +78,7 @@ public class EnscriberTileEntity extends GenericTileEntity {
                 }
                 return stack.getItem() instanceof DimletItem;
             })
-            .onUpdate((slot, stack) -> validateDimlets())
+            .onUpdate(this::onSlotChanged)
             .build();
 
 
@@ -79,7 +86,7 @@ public class EnscriberTileEntity extends GenericTileEntity {
     private final LazyOptional<INamedContainerProvider> screenHandler = LazyOptional.of(() -> new DefaultContainerProvider<GenericContainer>("Enscriber")
             .containerSupplier(container(EnscriberModule.CONTAINER_ENSCRIBER, CONTAINER_FACTORY, this))
             .itemHandler(() -> items)
-            .shortListener(Sync.integer(() -> error.getCode().ordinal(), v -> clientErrorCode = v))
+            .shortListener(Sync.integer(() -> getError().getCode().ordinal(), v -> clientErrorCode = v))
             .setupSync(this));
 
     public EnscriberTileEntity() {
@@ -170,21 +177,20 @@ public class EnscriberTileEntity extends GenericTileEntity {
     private ItemStack createRealizedTab(DimensionDescriptor descriptor) {
         ItemStack realizedTab = new ItemStack(DimensionBuilderModule.REALIZED_DIMENSION_TAB.get(), 1);
         CompoundNBT tagCompound = realizedTab.getOrCreateTag();
-        String compact = descriptor.compact();
-        tagCompound.putString("descriptor", compact);
+        descriptor.write(tagCompound, "descriptor");
 
         PersistantDimensionManager mgr = PersistantDimensionManager.get(level);
         DimensionData data = mgr.getData(descriptor);
 
-        CompiledDescriptor compiledDescriptor = new CompiledDescriptor();
+        CompiledDescriptor compiledDescriptor;
 
         if (data != null) {
             // The dimension was already created.
             tagCompound.putInt("ticksLeft", 0);
             tagCompound.putString("dimension", data.getId().toString());
-            compiledDescriptor.compile(descriptor, data.getRandomizedDescriptor());
+            compiledDescriptor = CompiledDescriptorCache.compile(descriptor, data.getRandomizedDescriptor()).getCompiledDescriptor();
         } else {
-            compiledDescriptor.compile(descriptor, DimensionDescriptor.EMPTY);  // Randomized part not known yet
+            compiledDescriptor = CompiledDescriptorCache.compile(descriptor, DimensionDescriptor.EMPTY).getCompiledDescriptor();  // Randomized part not known yet
             tagCompound.putInt("ticksLeft", compiledDescriptor.getActualTickCost());
         }
 
@@ -228,10 +234,47 @@ public class EnscriberTileEntity extends GenericTileEntity {
         return descriptor;
     }
 
-    private void validateDimlets() {
-        DimensionDescriptor descriptor = convertToDimensionDescriptor(null);
-        CompiledDescriptor compiledDescriptor = new CompiledDescriptor();
-        error = compiledDescriptor.compile(descriptor, DimensionDescriptor.EMPTY);  // We just need to check the descriptor. Not randomized
+    @Nullable
+    private static DimletKey getValidDimlet(ItemStack stack) {
+        if (stack.isEmpty()) {
+            return null;
+        }
+        DimletKey key = DimletTools.getDimletKey(stack);
+        return DimletDictionary.get().getSettings(key) == null ? null : key;
+    }
+
+    private void onSlotChanged(int slot, ItemStack stack) {
+        if (slot >= SLOT_DIMLETS && slot < SLOT_DIMLETS + SIZE_DIMLETS && slotDictionary != null) {
+            slotKeys[slot - SLOT_DIMLETS] = getValidDimlet(stack);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Get the result of validating the dimlets. The descriptor is only compiled again if a slot changed
+     * since the last time so this is cheap to call every tick
+     */
+    private DescriptorError getError() {
+        DimletDictionary dictionary = DimletDictionary.get();
+        if (slotDictionary != dictionary) {
+            // First time or the dictionary changed (the blacklist may be different): get all slots again
+            for (int i = 0; i < SIZE_DIMLETS; i++) {
+                slotKeys[i] = getValidDimlet(items.getStackInSlot(i + SLOT_DIMLETS));
+            }
+            slotDictionary = dictionary;
+            dirty = true;
+        }
+        if (dirty) {
+            DimensionDescriptor descriptor = new DimensionDescriptor();
+            for (DimletKey key : slotKeys) {
+                if (key != null) {
+                    descriptor.getDimlets().add(key);
+                }
+            }
+            error = CompiledDescriptorCache.compile(descriptor, DimensionDescriptor.EMPTY).getError();  // We just need to check the descriptor. Not randomized
+            dirty = false;
+        }
+        return error;
     }
 
     public int getClientErrorCode() {
@@ -243,9 +286,8 @@ public class EnscriberTileEntity extends GenericTileEntity {
         CompoundNBT tagCompound = realizedTab.getTag();
         if (tagCompound != null) {
             long forcedSeed = tagCompound.getLong("forcedSeed");
-            String descString = tagCompound.getString("descriptor");
             DimensionDescriptor descriptor = new DimensionDescriptor();
-            descriptor.read(descString);
+            descriptor.read(tagCompound, "descriptor");
             List<DimletKey> dimlets = descriptor.getDimlets();
             int idx = SLOT_DIMLETS;
             for (DimletKey key : dimlets) {
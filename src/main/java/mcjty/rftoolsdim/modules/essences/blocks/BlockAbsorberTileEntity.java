@@ -12,7 +12,6 @@ import mcjty.rftoolsdim.compat.RFToolsDimensionsTOPDriver;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletSettings;
-import mcjty.rftoolsdim.modules.dimlets.data.DimletType;
 import mcjty.rftoolsdim.modules.essences.EssencesConfig;
 import mcjty.rftoolsdim.modules.essences.EssencesModule;
 import net.minecraft.block.Block;
@@ -236,8 +235,10 @@ public class BlockAbsorberTileEntity extends GenericTileEntity implements ITicka
     }
 
     private boolean isValidDimletBlock(BlockState state) {
-        Block block = state.getBlock();
-        DimletKey key = new DimletKey(DimletType.BLOCK, block.getRegistryName().toString());
+        DimletKey key = DimletDictionary.get().getBlockDimlet(state.getBlock());
+        if (key == null) {
+            return false;
+        }
         DimletSettings settings = DimletDictionary.get().getSettings(key);
         return settings != null && settings.isDimlet();
     }
@@ -13,7 +13,6 @@ import mcjty.rftoolsdim.compat.RFToolsDimensionsTOPDriver;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletSettings;
-import mcjty.rftoolsdim.modules.dimlets.data.DimletType;
 import mcjty.rftoolsdim.modules.essences.EssencesConfig;
 import mcjty.rftoolsdim.modules.essences.EssencesModule;
 import net.minecraft.block.*;
@@ -235,8 +234,10 @@ public class FluidAbsorberTileEntity extends GenericTileEntity implements ITicka
             if (!fluidState.isSource()) {
                 return false;
             }
-            Fluid fluid = fluidState.getType();
-            DimletKey key = new DimletKey(DimletType.FLUID, fluid.getRegistryName().toString());
+            DimletKey key = DimletDictionary.get().getFluidDimlet(fluidState.getType());
+            if (key == null) {
+                return false;
+            }
             DimletSettings settings = DimletDictionary.get().getSettings(key);
             return settings != null && settings.isDimlet();
         }
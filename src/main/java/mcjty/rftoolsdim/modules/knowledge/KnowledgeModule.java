@@ -4,6 +4,9 @@ import mcjty.lib.modules.IModule;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletRarity;
 import mcjty.rftoolsdim.modules.knowledge.data.KnowledgeManager;
 import mcjty.rftoolsdim.modules.knowledge.items.LostKnowledgeItem;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.RegistryObject;
@@ -24,7 +27,11 @@ public class KnowledgeModule implements IModule {
     }
 
     private void onWorldLoad(WorldEvent.Load event) {
-        KnowledgeManager.get().clear();
+        // Only for the overworld. The pattern table for the seed is loaded when the server has started
+        IWorld world = event.getWorld();
+        if (world instanceof ServerWorld && ((ServerWorld) world).dimension() == World.OVERWORLD) {
+            KnowledgeManager.get().clear();
+        }
     }
 
     @Override
@@ -1,45 +1,208 @@
 package mcjty.rftoolsdim.modules.knowledge.data;
 
-import java.util.Arrays;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.network.PacketBuffer;
 
+import javax.annotation.Nullable;
+
+import static mcjty.rftoolsdim.modules.knowledge.data.PatternBuilder.*;
+
+/**
+ * A 6x6 pattern packed in two longs. Every cell uses 3 bits (cell index is y * PATTERN_DIM + x).
+ * The first 21 cells are in 'low' and the other 15 cells in 'high'
+ */
 public class DimletPattern {
 
     public static final int PATTERN_DIM = 6;
+    public static final int CELLS = PATTERN_DIM * PATTERN_DIM;
+
+    private static final int BITS = 3;
+    private static final int CELLS_LOW = 21;
+    private static final long MASK = 7;
+
+    // Cell values
+    private static final int CELL_EMPTY = 0;
+    private static final int CELL_SHARD = 1;
+    private static final int CELL_LEV0 = 2;
+    private static final int CELL_LEV1 = 3;
+    private static final int CELL_LEV2 = 4;
 
-    private final String[] pattern;
+    private final long low;
+    private final long high;
 
+    DimletPattern(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    /// Parse the string form of a pattern (one string per row)
     public DimletPattern(String[] pattern) {
-        this.pattern = new String[PATTERN_DIM];
-        System.arraycopy(pattern, 0, this.pattern, 0, PATTERN_DIM);
+        long[] words = new long[2];
+        for (int y = 0 ; y < PATTERN_DIM ; y++) {
+            String p = pattern[y];
+            for (int x = 0 ; x < PATTERN_DIM && x < p.length() ; x++) {
+                setCell(words, x, y, p.charAt(x));
+            }
+        }
+        this.low = words[0];
+        this.high = words[1];
+    }
+
+    public DimletPattern(PacketBuffer buf) {
+        low = buf.readLong();
+        high = buf.readLong();
+    }
+
+    public void toBytes(PacketBuffer buf) {
+        buf.writeLong(low);
+        buf.writeLong(high);
+    }
+
+    @Nullable
+    public static DimletPattern read(CompoundNBT tag, String key) {
+        long[] words = tag.getLongArray(key);
+        if (words.length != 2) {
+            return null;
+        }
+        return new DimletPattern(words[0], words[1]);
+    }
+
+    public void write(CompoundNBT tag, String key) {
+        tag.putLongArray(key, new long[] { low, high });
+    }
+
+    /// Pack a table of patterns in a long array (two longs per pattern)
+    public static long[] pack(DimletPattern[] patterns) {
+        long[] data = new long[patterns.length * 2];
+        for (int i = 0 ; i < patterns.length ; i++) {
+            data[i * 2] = patterns[i].low;
+            data[i * 2 + 1] = patterns[i].high;
+        }
+        return data;
+    }
+
+    public static DimletPattern[] unpack(long[] data) {
+        DimletPattern[] patterns = new DimletPattern[data.length / 2];
+        for (int i = 0 ; i < patterns.length ; i++) {
+            patterns[i] = new DimletPattern(data[i * 2], data[i * 2 + 1]);
+        }
+        return patterns;
+    }
+
+    /// Set a cell in the two words of a pattern that is being built
+    static void setCell(long[] words, int x, int y, char c) {
+        int idx = y * PATTERN_DIM + x;
+        int word = idx < CELLS_LOW ? 0 : 1;
+        int shift = (idx < CELLS_LOW ? idx : idx - CELLS_LOW) * BITS;
+        words[word] = (words[word] & ~(MASK << shift)) | ((long) toCell(c) << shift);
     }
 
+    private int getCell(int idx) {
+        if (idx < CELLS_LOW) {
+            return (int) ((low >>> (idx * BITS)) & MASK);
+        } else {
+            return (int) ((high >>> ((idx - CELLS_LOW) * BITS)) & MASK);
+        }
+    }
+
+    private static int toCell(char c) {
+        switch (c) {
+            case SHARD: return CELL_SHARD;
+            case LEV0: return CELL_LEV0;
+            case LEV1: return CELL_LEV1;
+            case LEV2: return CELL_LEV2;
+        }
+        return CELL_EMPTY;
+    }
+
+    private static char toChar(int cell) {
+        switch (cell) {
+            case CELL_SHARD: return SHARD;
+            case CELL_LEV0: return LEV0;
+            case CELL_LEV1: return LEV1;
+            case CELL_LEV2: return LEV2;
+        }
+        return EMPTY;
+    }
+
+    public char get(int x, int y) {
+        return toChar(getCell(y * PATTERN_DIM + x));
+    }
+
+    /// The string form of this pattern (one string per row)
     public String[] getPattern() {
+        String[] pattern = new String[PATTERN_DIM];
+        char[] row = new char[PATTERN_DIM];
+        for (int y = 0 ; y < PATTERN_DIM ; y++) {
+            for (int x = 0 ; x < PATTERN_DIM ; x++) {
+                row[x] = get(x, y);
+            }
+            pattern[y] = new String(row);
+        }
         return pattern;
     }
 
     public int count(char s) {
+        int cell = toCell(s);
         int cnt = 0;
-        for (String p : pattern) {
-            for (int i = 0 ; i < p.length() ; i++) {
-                char c = p.charAt(i);
-                if (c == s) {
-                    cnt++;
-                }
+        for (int idx = 0 ; idx < CELLS ; idx++) {
+            if (getCell(idx) == cell) {
+                cnt++;
             }
         }
         return cnt;
     }
 
+    /// Return this pattern rotated and/or mirrored. 'symmetry' is 0 to 7: bit 0 mirrors, bits 1 and 2 give the
+    /// number of quarter turns
+    public DimletPattern transform(int symmetry) {
+        if (symmetry == 0) {
+            return this;
+        }
+        int last = PATTERN_DIM - 1;
+        long[] words = new long[2];
+        for (int y = 0 ; y < PATTERN_DIM ; y++) {
+            for (int x = 0 ; x < PATTERN_DIM ; x++) {
+                int tx = (symmetry & 1) != 0 ? last - x : x;
+                int ty = y;
+                for (int r = 0 ; r < (symmetry >> 1) ; r++) {
+                    int t = tx;
+                    tx = last - ty;
+                    ty = t;
+                }
+                int idx = ty * PATTERN_DIM + tx;
+                int word = idx < CELLS_LOW ? 0 : 1;
+                int shift = (idx < CELLS_LOW ? idx : idx - CELLS_LOW) * BITS;
+                words[word] |= (long) getCell(y * PATTERN_DIM + x) << shift;
+            }
+        }
+        return new DimletPattern(words[0], words[1]);
+    }
+
+    /// The smallest of the eight rotations and reflections of this pattern. Two patterns have the same
+    /// canonical form if one can be rotated or mirrored into the other
+    public DimletPattern getCanonical() {
+        DimletPattern best = this;
+        for (int symmetry = 1 ; symmetry < 8 ; symmetry++) {
+            DimletPattern p = transform(symmetry);
+            int cmp = Long.compareUnsigned(p.high, best.high);
+            if (cmp < 0 || (cmp == 0 && Long.compareUnsigned(p.low, best.low) < 0)) {
+                best = p;
+            }
+        }
+        return best;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         DimletPattern that = (DimletPattern) o;
-        return Arrays.equals(pattern, that.pattern);
+        return low == that.low && high == that.high;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(pattern);
+        return Long.hashCode(low * 31 + high);
     }
 }
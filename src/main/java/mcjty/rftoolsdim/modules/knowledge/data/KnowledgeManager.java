@@ -1,6 +1,5 @@
 package mcjty.rftoolsdim.modules.knowledge.data;
 
-import mcjty.lib.varia.LevelTools;
 import mcjty.rftoolsdim.RFToolsDim;
 import mcjty.rftoolsdim.dimension.TimeType;
 import mcjty.rftoolsdim.dimension.biomes.BiomeControllerType;
@@ -20,6 +19,7 @@ import net.minecraft.tags.BlockTags;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
+import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.registries.ForgeRegistries;
 
 import javax.annotation.Nullable;
@@ -29,14 +29,41 @@ import static mcjty.rftoolsdim.modules.knowledge.data.PatternBuilder.*;
 
 public class KnowledgeManager {
 
-    private long worldSeed = -1;    // To validate that the patterns are still ok
+    // The knowledge keys of all dimlets (index is the dimlet id) with the known patterns and reasons that
+    // follow from them. This depends on the dimlet dictionary and on the block tags. A table is completely
+    // built before it is published and never changed after that so it can be read without locking
+    private static class KeyTable {
+        private final DimletDictionary dictionary;
+        private final KnowledgeKey[] keysById;
+        // All patterns that are actually used by dimlets
+        private final Map<DimletRarity, List<KnowledgeKey>> knownPatterns;
+        // All patterns with their corresponding reason (if any)
+        private final Map<KnowledgeKey, String> keyReasons;
 
-    // All patterns by knowledge key
-    private Map<KnowledgeKey, DimletPattern> patterns = null;
-    // All patterns that are actually used by dimlets
-    private final Map<DimletRarity, List<KnowledgeKey>> knownPatterns = new HashMap<>();
-    // All patterns with their corresponding reason (if any)
-    private final Map<KnowledgeKey, String> keyReasons = new HashMap<>();
+        public KeyTable(DimletDictionary dictionary, KnowledgeKey[] keysById,
+                        Map<DimletRarity, List<KnowledgeKey>> knownPatterns, Map<KnowledgeKey, String> keyReasons) {
+            this.dictionary = dictionary;
+            this.keysById = keysById;
+            this.knownPatterns = knownPatterns;
+            this.keyReasons = keyReasons;
+        }
+    }
+
+    // All patterns for a world seed (index is given by RandomPatternCreator.getIndex())
+    private static class PatternTable {
+        private final long seed;
+        private final DimletPattern[] patterns;
+
+        public PatternTable(long seed, DimletPattern[] patterns) {
+            this.seed = seed;
+            this.patterns = patterns;
+        }
+    }
+
+    private volatile KeyTable keyTable = null;
+    // Incremented every time a new key table is built
+    private volatile int keyGeneration = 0;
+    private volatile PatternTable patternTable = null;
 
     private static final KnowledgeManager INSTANCE = new KnowledgeManager();
 
@@ -47,18 +74,101 @@ public class KnowledgeManager {
     }
 
     public void clear() {
-        commonTags.clear();
-        keyReasons.clear();
-        knownPatterns.clear();
-        patterns = null;
-        worldSeed = -1;
+        keyTable = null;
+        patternTable = null;
+    }
+
+    /// Build the key table for the current dimlet dictionary. This is done when the server has started, after the
+    /// dimlets are reloaded and when the tags change (the knowledge sets of blocks depend on their tags) so that the
+    /// first use of the workbench or researcher doesn't have to do it
+    public void rebuildKeys() {
+        keyTable = createKeyTable(DimletDictionary.get());
+        keyGeneration++;
+    }
+
+    /// Forget the key table so that it is built again (for the current dictionary) when it is needed
+    public void invalidateKeys() {
+        keyTable = null;
+    }
+
+    /// Changes when the knowledge keys of dimlets (may) have changed
+    public int getKeyGeneration() {
+        getKeyTable();
+        return keyGeneration;
+    }
+
+    /// Get the key table for the current dimlet dictionary. Normally it is already built (see rebuildKeys()) but on
+    /// the client the dictionary can change at any time. If two threads find an outdated table at the same time both
+    /// build a new one. That's harmless since they are the same
+    private KeyTable getKeyTable() {
+        KeyTable current = keyTable;
+        DimletDictionary dictionary = DimletDictionary.get();
+        if (current == null || current.dictionary != dictionary) {
+            current = createKeyTable(dictionary);
+            keyTable = current;
+            keyGeneration++;
+        }
+        return current;
     }
 
-    private void resolve(long seed) {
-        if (seed != worldSeed || patterns == null) {
-            worldSeed = seed;
-            patterns = RandomPatternCreator.createRandomPatterns(seed);
+    /// Load the pattern table of the world or create it if the world doesn't have one yet. This is done
+    /// when the server starts so that it doesn't have to be done the first time a pattern is needed
+    public void loadPatterns(ServerWorld overworld) {
+        long seed = overworld.getSeed();
+        PatternTableData data = PatternTableData.get(overworld);
+        DimletPattern[] patterns = data.getPatterns(seed);
+        if (patterns == null) {
+            long start = System.currentTimeMillis();
+            patterns = RandomPatternCreator.createPatternTable(seed);
+            data.setPatterns(seed, patterns);
+            RFToolsDim.setup.getLogger().info("Created " + patterns.length + " patterns in " + (System.currentTimeMillis() - start) + "ms");
         }
+        patternTable = new PatternTable(seed, patterns);
+    }
+
+    /// On the client (or if the table wasn't loaded for this seed) the patterns are created when first needed
+    private PatternTable getPatternTable(long seed) {
+        PatternTable current = patternTable;
+        if (current == null || current.seed != seed) {
+            current = new PatternTable(seed, RandomPatternCreator.createPatternTable(seed));
+            patternTable = current;
+        }
+        return current;
+    }
+
+    private KeyTable createKeyTable(DimletDictionary dictionary) {
+        long start = System.currentTimeMillis();
+        // Counting the members of a tag is expensive and many blocks share the same tags. This is only
+        // for this build: the tags can be different the next time
+        Map<ResourceLocation, Integer> tagSizes = new HashMap<>();
+        List<DimletKey> keys = dictionary.getKeysById();
+        KnowledgeKey[] keysById = new KnowledgeKey[keys.size()];
+        Map<DimletRarity, List<KnowledgeKey>> knownPatterns = new EnumMap<>(DimletRarity.class);
+        for (DimletRarity rarity : DimletRarity.values()) {
+            knownPatterns.put(rarity, new ArrayList<>());
+        }
+        Map<KnowledgeKey, String> keyReasons = new HashMap<>();
+        for (int id = 0 ; id < keysById.length ; id++) {
+            DimletKey key = keys.get(id);
+            DimletSettings settings = dictionary.getSettings(id);
+            if (key == null || settings == null) {
+                continue;
+            }
+            KnowledgeKey kkey = new KnowledgeKey(key.getType(), settings.getRarity(), getKnowledgeSet(key, tagSizes));
+            keysById[id] = kkey;
+            knownPatterns.get(kkey.getRarity()).add(kkey);
+            String reason = getKnowledgeSetReason(key, tagSizes);
+            if (reason != null) {
+                keyReasons.put(kkey, reason);
+            }
+        }
+        for (DimletRarity rarity : DimletRarity.values()) {
+            List<KnowledgeKey> list = knownPatterns.get(rarity);
+            RFToolsDim.setup.getLogger().info("Patterns for rarity " + rarity.name() + ": " + list.size());
+            knownPatterns.put(rarity, Collections.unmodifiableList(list));
+        }
+        RFToolsDim.setup.getLogger().info("Calculated knowledge keys in " + (System.currentTimeMillis() - start) + "ms");
+        return new KeyTable(dictionary, keysById, Collections.unmodifiableMap(knownPatterns), Collections.unmodifiableMap(keyReasons));
     }
 
     public static ItemStack getPatternItem(char p) {
@@ -93,7 +203,7 @@ public class KnowledgeManager {
     }
 
     @Nullable
-    private String getKnowledgeSetReason(DimletKey key) {
+    private String getKnowledgeSetReason(DimletKey key, Map<ResourceLocation, Integer> tagSizes) {
         switch (key.getType()) {
             case TERRAIN:
                 return null;
@@ -114,7 +224,7 @@ public class KnowledgeManager {
             case ADMIN:
                 return null;
             case BLOCK:
-                ResourceLocation tagId = getMostCommonTagForBlock(key);
+                ResourceLocation tagId = getMostCommonTagForBlock(key, tagSizes);
                 if (tagId != null) {
                     return tagId.getPath();
                 }
@@ -125,7 +235,7 @@ public class KnowledgeManager {
         return null;
     }
 
-    private KnowledgeSet getKnowledgeSet(DimletKey key) {
+    private KnowledgeSet getKnowledgeSet(DimletKey key, Map<ResourceLocation, Integer> tagSizes) {
         switch (key.getType()) {
             case TERRAIN:
                 return TerrainType.byName(key.getKey()).getSet();
@@ -140,7 +250,7 @@ public class KnowledgeManager {
             case TIME:
                 return TimeType.byName(key.getKey()).getSet();
             case BLOCK:
-                return getBlockKnowledgeSet(key);
+                return getBlockKnowledgeSet(key, tagSizes);
             case FLUID:
                 return getFluidKnowledgeSet(key);
             case DIGIT:
@@ -158,8 +268,8 @@ public class KnowledgeManager {
     }
 
     /// Create a knowledge set based on the most important tag for a given block
-    private KnowledgeSet getBlockKnowledgeSet(DimletKey key) {
-        ResourceLocation tagId = getMostCommonTagForBlock(key);
+    private KnowledgeSet getBlockKnowledgeSet(DimletKey key, Map<ResourceLocation, Integer> tagSizes) {
+        ResourceLocation tagId = getMostCommonTagForBlock(key, tagSizes);
         if (tagId == null) {
             return KnowledgeSet.SET1;
         }
@@ -168,7 +278,7 @@ public class KnowledgeManager {
         return KnowledgeSet.values()[i%(KnowledgeSet.values().length)];
     }
 
-    private ResourceLocation getMostCommonTagForBlock(DimletKey key) {
+    private ResourceLocation getMostCommonTagForBlock(DimletKey key, Map<ResourceLocation, Integer> tagSizes) {
         ResourceLocation mostImportant = null;
         Block block = ForgeRegistries.BLOCKS.getValue(new ResourceLocation(key.getKey()));
         if (block == null) {
@@ -177,8 +287,7 @@ public class KnowledgeManager {
             Set<ResourceLocation> tags = block.getTags();
             int maxAmount = -1;
             for (ResourceLocation tag : tags) {
-                List<Block> elements = BlockTags.createOptional(tag).getValues();
-                int size = elements.size();
+                int size = tagSizes.computeIfAbsent(tag, t -> BlockTags.createOptional(t).getValues().size());
                 if (commonTags.isCommon(tag)) {
                     size += 10; // Extra bonus
                 }
@@ -203,13 +312,9 @@ public class KnowledgeManager {
 
     @Nullable
     public KnowledgeKey getKnowledgeKey(long seed, DimletKey key) {
-        resolve(seed);
-        DimletSettings settings = DimletDictionary.get().getSettings(key);
-        if (settings == null) {
-            return null;
-        }
-        KnowledgeSet set = getKnowledgeSet(key);
-        return new KnowledgeKey(key.getType(), settings.getRarity(), set);
+        KeyTable table = getKeyTable();
+        int id = table.dictionary.getId(key);
+        return id >= 0 && id < table.keysById.length ? table.keysById[id] : null;
     }
 
     @Nullable
@@ -218,33 +323,14 @@ public class KnowledgeManager {
         if (kkey == null) {
             return null;
         }
-        return patterns.get(kkey);
+        return getPatternTable(seed).patterns[RandomPatternCreator.getIndex(kkey)];
     }
 
     public String getReason(World world, KnowledgeKey key) {
-        getKnownPatterns(world, key.getRarity());   // Make sure to refresh known patterns (and keyReasons)
-        return keyReasons.get(key);
+        return getKeyTable().keyReasons.get(key);
     }
 
     public List<KnowledgeKey> getKnownPatterns(World world, DimletRarity rarity) {
-        if (!knownPatterns.containsKey(rarity)) {
-            List<KnowledgeKey> set = new ArrayList<>();
-            for (DimletKey key : DimletDictionary.get().getDimlets()) {
-                DimletSettings settings = DimletDictionary.get().getSettings(key);
-                if (settings != null && Objects.equals(settings.getRarity(), rarity)) {
-                    KnowledgeKey kkey = getKnowledgeKey(LevelTools.getOverworld(world).getSeed(), key);
-                    if (kkey != null) {
-                        set.add(kkey);
-                        String reason = getKnowledgeSetReason(key);
-                        if (reason != null) {
-                            keyReasons.put(kkey, reason);
-                        }
-                    }
-                }
-            }
-            RFToolsDim.setup.getLogger().info("Patterns for rarity " + rarity.name() + ": " + set.size());
-            knownPatterns.put(rarity, set);
-        }
-        return knownPatterns.get(rarity);
+        return getKeyTable().knownPatterns.get(rarity);
     }
 }
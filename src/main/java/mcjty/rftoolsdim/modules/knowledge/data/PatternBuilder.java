@@ -1,7 +1,5 @@
 package mcjty.rftoolsdim.modules.knowledge.data;
 
-import static mcjty.rftoolsdim.modules.knowledge.data.DimletPattern.PATTERN_DIM;
-
 public class PatternBuilder {
 
     public static final char EMPTY = ' ';
@@ -10,29 +8,15 @@ public class PatternBuilder {
     public static final char LEV1 = '1';
     public static final char LEV2 = '2';
 
-    private final char[][] pattern = new char[][] {
-            { EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY },
-            { EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY },
-            { EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY },
-            { EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY },
-            { EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY },
-            { EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY }
-    };
+    // The packed cells of the pattern (see DimletPattern)
+    private final long[] words = new long[2];
 
     public void set(int x, int y, char s) {
-        pattern[x][y] = s;
+        DimletPattern.setCell(words, x, y, s);
     }
 
     public DimletPattern build() {
-        String[] p = new String[PATTERN_DIM];
-        for (int y = 0 ; y < PATTERN_DIM ; y++) {
-            String s = "";
-            for (int x = 0 ; x < PATTERN_DIM ; x++) {
-                s += pattern[x][y];
-            }
-            p[y] = s;
-        }
-        return new DimletPattern(p);
+        return new DimletPattern(words[0], words[1]);
     }
 
 }
@@ -0,0 +1,69 @@
+package mcjty.rftoolsdim.modules.knowledge.data;
+
+import mcjty.lib.worlddata.AbstractWorldData;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.world.World;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The pattern table of the world (see RandomPatternCreator) as it is saved with the world so that it
+ * only has to be generated once
+ */
+public class PatternTableData extends AbstractWorldData<PatternTableData> {
+
+    private static final String NAME = "RFToolsDimPatterns";
+
+    private long seed = 0;
+    private long version = 0;
+    private DimletPattern[] patterns = null;
+
+    public PatternTableData(String name) {
+        super(name);
+    }
+
+    @Nonnull
+    public static PatternTableData get(World world) {
+        return getData(world, () -> new PatternTableData(NAME), NAME);
+    }
+
+    /// Return the saved patterns or null if they were made for another seed, another number of patterns or
+    /// another version of the pattern creator
+    @Nullable
+    public DimletPattern[] getPatterns(long seed) {
+        if (patterns == null || this.seed != seed || version != RandomPatternCreator.VERSION || patterns.length != RandomPatternCreator.TABLE_SIZE) {
+            return null;
+        }
+        return patterns;
+    }
+
+    public void setPatterns(long seed, DimletPattern[] patterns) {
+        this.seed = seed;
+        this.version = RandomPatternCreator.VERSION;
+        this.patterns = patterns;
+        setDirty();
+    }
+
+    @Override
+    public void load(CompoundNBT tag) {
+        if (tag.contains("patterns")) {
+            seed = tag.getLong("seed");
+            version = tag.getLong("version");
+            patterns = DimletPattern.unpack(tag.getLongArray("patterns"));
+        } else {
+            patterns = null;
+        }
+    }
+
+    @Nonnull
+    @Override
+    public CompoundNBT save(@Nonnull CompoundNBT compound) {
+        if (patterns != null) {
+            compound.putLong("seed", seed);
+            compound.putLong("version", version);
+            compound.putLongArray("patterns", DimletPattern.pack(patterns));
+        }
+        return compound;
+    }
+}
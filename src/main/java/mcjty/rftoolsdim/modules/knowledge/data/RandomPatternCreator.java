@@ -5,6 +5,7 @@ import mcjty.rftoolsdim.modules.dimlets.data.DimletType;
 
 import java.util.*;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 public class RandomPatternCreator {
 
@@ -717,66 +718,95 @@ public class RandomPatternCreator {
         return pattern;
     }
 
-    private static void applyPattern(PatternBuilder builder, String[] pattern, char c) {
-        for (int y = 0 ; y < pattern.length ; y++) {
-            for (int x = 0 ; x < pattern[y].length() ; x++) {
-                char p = pattern[y].charAt(x);
-                if (p == '#') {
-                    builder.set(x, y, c);
+    // The cells of every pattern as a bitmask (bit index is y * PATTERN_DIM + x)
+    private static final long[] PATTERN_MASKS = createMasks();
+
+    private static long[] createMasks() {
+        long[] masks = new long[PATTERNS.length];
+        for (int i = 0 ; i < PATTERNS.length ; i++) {
+            String[] pattern = PATTERNS[i];
+            for (int y = 0 ; y < pattern.length ; y++) {
+                for (int x = 0 ; x < pattern[y].length() ; x++) {
+                    if (pattern[y].charAt(x) == '#') {
+                        masks[i] |= 1L << (y * DimletPattern.PATTERN_DIM + x);
+                    }
                 }
             }
         }
+        return masks;
+    }
+
+    private static void applyPattern(PatternBuilder builder, long mask, char c) {
+        while (mask != 0) {
+            int idx = Long.numberOfTrailingZeros(mask);
+            builder.set(idx % DimletPattern.PATTERN_DIM, idx / DimletPattern.PATTERN_DIM, c);
+            mask &= mask - 1;
+        }
     }
 
     private static DimletPattern buildPattern(SelectedPattern selectedPattern) {
         PatternBuilder builder = new PatternBuilder();
         int i1 = selectedPattern.getI1();
-        applyPattern(builder, PATTERNS[i1], PatternBuilder.SHARD);
+        applyPattern(builder, PATTERN_MASKS[i1], PatternBuilder.SHARD);
         int i2 = selectedPattern.getI2();
         if (i2 != -1) {
-            applyPattern(builder, PATTERNS[i2], PatternBuilder.LEV0);
+            applyPattern(builder, PATTERN_MASKS[i2], PatternBuilder.LEV0);
         }
         int i3 = selectedPattern.getI3();
         if (i3 != -1) {
-            applyPattern(builder, PATTERNS[i3], PatternBuilder.LEV1);
+            applyPattern(builder, PATTERN_MASKS[i3], PatternBuilder.LEV1);
         }
         int i4 = selectedPattern.getI4();
         if (i4 != -1) {
-            applyPattern(builder, PATTERNS[i4], PatternBuilder.LEV2);
+            applyPattern(builder, PATTERN_MASKS[i4], PatternBuilder.LEV2);
         }
 
         return builder.build();
     }
 
 
+    // Number of patterns in a pattern table. There is a pattern for every knowledge set, type and rarity
+    public static final int TABLE_SIZE = KnowledgeSet.values().length * DimletType.values().length * DimletRarity.values().length;
+
+    // Increase when the selection or building of patterns changes. Saved pattern tables with another version
+    // are made again (the client always makes the table itself so it must match the server)
+    private static final int ALGORITHM_VERSION = 1;
+
+    /// The version of the pattern tables. Also changes automatically when the pattern definitions change
+    public static final long VERSION = ((long) ALGORITHM_VERSION << 32) ^ (Arrays.hashCode(PATTERN_MASKS) & 0xffffffffL);
+
+    /// The index of the pattern for a knowledge key in a pattern table
+    public static int getIndex(KnowledgeKey key) {
+        return getIndex(key.getSet(), key.getType(), key.getRarity());
+    }
+
+    private static int getIndex(KnowledgeSet set, DimletType type, DimletRarity rarity) {
+        return (set.ordinal() * DimletType.values().length + type.ordinal()) * DimletRarity.values().length + rarity.ordinal();
+    }
+
     /**
-     * Create a set of random patterns based on seed (so it's constant for any given world)
+     * Create the random patterns for a seed (so it's constant for any given world). The patterns are
+     * selected in the same order as always so that existing worlds keep their patterns. Only building
+     * the patterns from that selection is done in parallel
      */
-    public static Map<KnowledgeKey, DimletPattern> createRandomPatterns(long seed) {
+    public static DimletPattern[] createPatternTable(long seed) {
         Set<SelectedPattern> selectedPatterns = new HashSet<>();
-        Map<KnowledgeKey, SelectedPattern> patternMap = new HashMap<>();
+        SelectedPattern[] selection = new SelectedPattern[TABLE_SIZE];
 
         Random random = new Random(seed);
         random.nextInt();
         random.nextInt();
         for (KnowledgeSet set : KnowledgeSet.values()) {
             for (DimletType type : DimletType.values()) {
-                SelectedPattern pattern0 = findUnusedPattern(selectedPatterns, () -> new SelectedPattern(r(random), -1, -1, -1));
-                patternMap.put(new KnowledgeKey(type, DimletRarity.COMMON, set), pattern0);
-                SelectedPattern pattern1 = findUnusedPattern(selectedPatterns, () -> new SelectedPattern(r(random), r(random), -1, -1));
-                patternMap.put(new KnowledgeKey(type, DimletRarity.UNCOMMON, set), pattern1);
-                SelectedPattern pattern2 = findUnusedPattern(selectedPatterns, () -> new SelectedPattern(r(random), r(random), r(random), -1));
-                patternMap.put(new KnowledgeKey(type, DimletRarity.RARE, set), pattern2);
-                SelectedPattern pattern3 = findUnusedPattern(selectedPatterns, () -> new SelectedPattern(r(random), r(random), r(random), r(random)));
-                patternMap.put(new KnowledgeKey(type, DimletRarity.LEGENDARY, set), pattern3);
+                selection[getIndex(set, type, DimletRarity.COMMON)] = findUnusedPattern(selectedPatterns, () -> new SelectedPattern(r(random), -1, -1, -1));
+                selection[getIndex(set, type, DimletRarity.UNCOMMON)] = findUnusedPattern(selectedPatterns, () -> new SelectedPattern(r(random), r(random), -1, -1));
+                selection[getIndex(set, type, DimletRarity.RARE)] = findUnusedPattern(selectedPatterns, () -> new SelectedPattern(r(random), r(random), r(random), -1));
+                selection[getIndex(set, type, DimletRarity.LEGENDARY)] = findUnusedPattern(selectedPatterns, () -> new SelectedPattern(r(random), r(random), r(random), r(random)));
             }
         }
 
-        Map<KnowledgeKey, DimletPattern> patterns = new HashMap<>();
-        for (Map.Entry<KnowledgeKey, SelectedPattern> entry : patternMap.entrySet()) {
-            SelectedPattern selectedPattern = entry.getValue();
-            patterns.put(entry.getKey(), buildPattern(selectedPattern));
-        }
+        DimletPattern[] patterns = new DimletPattern[TABLE_SIZE];
+        IntStream.range(0, TABLE_SIZE).parallel().forEach(i -> patterns[i] = buildPattern(selection[i]));
         return patterns;
     }
 
@@ -35,8 +35,12 @@ public class KnowledgeHolderTileEntity extends GenericTileEntity {
     @Cap(type = CapType.ITEMS_AUTOMATION)
     private final GenericItemHandler items = GenericItemHandler.create(this, CONTAINER_FACTORY)
             .itemValid((slot, stack) -> isValidKnowledgeItem(stack))
+            .onUpdate((slot, stack) -> knowledgeVersion++)
             .build();
 
+    // Changes every time the contents change so that a workbench knows when its craftable dimlets have to be updated
+    private long knowledgeVersion = 0;
+
     @Cap(type = CapType.CONTAINER)
     private final LazyOptional<INamedContainerProvider> screenHandler = LazyOptional.of(() -> new DefaultContainerProvider<GenericContainer>("Knowledge Holder")
             .containerSupplier(container(WorkbenchModule.CONTAINER_HOLDER, CONTAINER_FACTORY,this))
@@ -52,6 +56,10 @@ public class KnowledgeHolderTileEntity extends GenericTileEntity {
         return item instanceof LostKnowledgeItem;
     }
 
+    public long getKnowledgeVersion() {
+        return knowledgeVersion;
+    }
+
     public void addKnownKnowledgeKeys(Set<KnowledgeKey> keys) {
         for (int i = 0 ; i < items.getSlots() ; i++) {
             ItemStack stack = items.getStackInSlot(i);
@@ -2,7 +2,6 @@ package mcjty.rftoolsdim.modules.workbench.blocks;
 
 import mcjty.lib.api.container.DefaultContainerProvider;
 import mcjty.lib.blockcommands.Command;
-import mcjty.lib.blockcommands.ListCommand;
 import mcjty.lib.blockcommands.ServerCommand;
 import mcjty.lib.blocks.BaseBlock;
 import mcjty.lib.blocks.RotationType;
@@ -19,17 +18,20 @@ import mcjty.lib.varia.LevelTools;
 import mcjty.lib.varia.OrientationTools;
 import mcjty.rftoolsbase.tools.ManualHelper;
 import mcjty.rftoolsdim.modules.dimlets.DimletModule;
-import mcjty.rftoolsdim.modules.dimlets.client.DimletClientHelper;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletSettings;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletTools;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletType;
 import mcjty.rftoolsdim.modules.dimlets.items.DimletItem;
 import mcjty.rftoolsdim.modules.dimlets.items.PartItem;
 import mcjty.rftoolsdim.modules.knowledge.data.DimletPattern;
+import mcjty.rftoolsdim.modules.knowledge.data.PatternBuilder;
 import mcjty.rftoolsdim.modules.knowledge.data.KnowledgeKey;
 import mcjty.rftoolsdim.modules.knowledge.data.KnowledgeManager;
 import mcjty.rftoolsdim.modules.workbench.WorkbenchModule;
+import mcjty.rftoolsdim.modules.workbench.network.DimletListQuery;
+import mcjty.rftoolsdim.modules.workbench.network.PacketDimletList;
 import mcjty.rftoolsdim.modules.workbench.network.PacketPatternToClient;
 import mcjty.rftoolsdim.setup.RFToolsDimMessages;
 import net.minecraft.entity.player.PlayerEntity;
@@ -45,11 +47,10 @@ import net.minecraftforge.common.util.LazyOptional;
 import net.minecraftforge.fml.network.PacketDistributor;
 import net.minecraftforge.items.ItemHandlerHelper;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import static mcjty.lib.api.container.DefaultContainerProvider.container;
 import static mcjty.lib.builder.TooltipBuilder.*;
@@ -145,20 +146,17 @@ public class WorkbenchTileEntity extends GenericTileEntity {
             return false;
         }
 
-        String[] pattern = new String[PATTERN_DIM];
+        PatternBuilder builder = new PatternBuilder();
         int slot = SLOT_PATTERN;
         for (int y = 0 ; y < PATTERN_DIM ; y++) {
-            String p = "";
             for (int x = 0 ; x < PATTERN_DIM ; x++) {
                 ItemStack stack = items.getStackInSlot(slot);
-                char c = KnowledgeManager.getPatternChar(stack);
-                p += c;
+                builder.set(x, y, KnowledgeManager.getPatternChar(stack));
                 slot++;
             }
-            pattern[y] = p;
         }
 
-        DimletKey key = DimletDictionary.get().tryCraft(level, type, memoryPart, energyPart, essenceStack, new DimletPattern(pattern));
+        DimletKey key = DimletDictionary.get().tryCraft(level, type, memoryPart, energyPart, essenceStack, builder.build());
         if (key == null) {
             return false;
         }
@@ -186,9 +184,8 @@ public class WorkbenchTileEntity extends GenericTileEntity {
     private void hilightPattern(PlayerEntity player, DimletKey key) {
         DimletPattern pattern = KnowledgeManager.get().getPattern(LevelTools.getOverworld(player.level).getSeed(), key);
         if (pattern != null) {
-            String[] p = pattern.getPattern();
             RFToolsDimMessages.INSTANCE.send(PacketDistributor.PLAYER.with(() -> (ServerPlayerEntity) player),
-                    new PacketPatternToClient(p));
+                    new PacketPatternToClient(pattern));
         }
     }
 
@@ -209,11 +206,10 @@ public class WorkbenchTileEntity extends GenericTileEntity {
 
         DimletPattern pattern = KnowledgeManager.get().getPattern(LevelTools.getOverworld(level).getSeed(), key);
         if (pattern != null) {
-            String[] p = pattern.getPattern();
             int slotNumber = SLOT_PATTERN;
-            for (String value : p) {
-                for (int x = 0; x < value.length(); x++) {
-                    ItemStack neededPattern = KnowledgeManager.getPatternItem(value.charAt(x));
+            for (int y = 0 ; y < PATTERN_DIM ; y++) {
+                for (int x = 0 ; x < PATTERN_DIM ; x++) {
+                    ItemStack neededPattern = KnowledgeManager.getPatternItem(pattern.get(x, y));
                     if (!neededPattern.isEmpty()) {
                         tryFindAndFitItem(player, s -> s.sameItem(neededPattern), slotNumber);
                     } else {
@@ -251,6 +247,31 @@ public class WorkbenchTileEntity extends GenericTileEntity {
         }
     }
 
+    // The client only asks for the pages it shows so pages are small
+    public static final int LIST_PAGE_SIZE = 32;
+
+    // Versions of the dimlet lists are unique for all workbenches so that a client never mistakes
+    // the list of one workbench for another
+    private static final AtomicLong LIST_VERSIONS = new AtomicLong();
+
+    // The state of the dimlet list as it was last sent to a client. The previous craftable dimlets are
+    // kept so that a client that has the previous version only gets the dimlets that changed
+    private DimletDictionary listDictionary = null;
+    private int[] sortedIds = null;
+    private BitSet craftable = null;
+    private long listVersion = -1;
+    private BitSet previousCraftable = null;
+    private long previousListVersion = -1;
+    // What the craftable dimlets were calculated from: the knowledge holders around us (and the version of
+    // their contents) and the generation of the knowledge keys. Only if one of these changes they are calculated again
+    private final KnowledgeHolderTileEntity[] listHolders = new KnowledgeHolderTileEntity[OrientationTools.DIRECTION_VALUES.length];
+    private final long[] listHolderVersions = new long[OrientationTools.DIRECTION_VALUES.length];
+    private int listKeyGeneration = -1;
+    // The dimlets that match the last query (see getMatchingIds())
+    private DimletListQuery matchingQuery = null;
+    private long matchingVersion = -1;
+    private int[] matchingIds = null;
+
     public static final Key<String> PARAM_TYPE = new Key<>("type", Type.STRING);
     public static final Key<String> PARAM_ID = new Key<>("id", Type.STRING);
 
@@ -278,19 +299,116 @@ public class WorkbenchTileEntity extends GenericTileEntity {
         return knownKeys;
     }
 
-    public List<DimletClientHelper.DimletWithInfo> getDimlets() {
+    /// Check if the knowledge holders around us or the knowledge keys changed since the craftable dimlets
+    /// were calculated. This also remembers the current state
+    private boolean isKnowledgeChanged() {
+        boolean changed = false;
+        for (int i = 0 ; i < listHolders.length ; i++) {
+            TileEntity tileEntity = level.getBlockEntity(worldPosition.relative(OrientationTools.DIRECTION_VALUES[i]));
+            KnowledgeHolderTileEntity holder = tileEntity instanceof KnowledgeHolderTileEntity ? (KnowledgeHolderTileEntity) tileEntity : null;
+            long version = holder == null ? 0 : holder.getKnowledgeVersion();
+            if (holder != listHolders[i] || version != listHolderVersions[i]) {
+                listHolders[i] = holder;
+                listHolderVersions[i] = version;
+                changed = true;
+            }
+        }
+        int generation = KnowledgeManager.get().getKeyGeneration();
+        if (generation != listKeyGeneration) {
+            listKeyGeneration = generation;
+            changed = true;
+        }
+        return changed;
+    }
+
+    /// Bring the craftable dimlets up to date. If they changed the list gets a new version. The craftable
+    /// dimlets are only calculated again if the knowledge around us or the dictionary changed
+    private void updateListState() {
+        DimletDictionary dictionary = DimletDictionary.get();
+        boolean knowledgeChanged = isKnowledgeChanged();
+        if (dictionary == listDictionary && !knowledgeChanged) {
+            return;
+        }
         Set<KnowledgeKey> knownKeys = getSupportedKnowledgeKeys();
-        List<DimletClientHelper.DimletWithInfo> dimlets = new ArrayList<>();
-        for (DimletKey dimlet : DimletDictionary.get().getDimlets()) {
-            KnowledgeKey kkey = KnowledgeManager.get().getKnowledgeKey(LevelTools.getOverworld(level).getSeed(), dimlet);
-            boolean craftable = knownKeys.contains(kkey);
-            dimlets.add(new DimletClientHelper.DimletWithInfo(dimlet, craftable));
+        long seed = LevelTools.getOverworld(level).getSeed();
+        List<DimletKey> keys = dictionary.getKeysById();
+        BitSet current = new BitSet(keys.size());
+        for (int id = 0 ; id < keys.size() ; id++) {
+            DimletKey key = keys.get(id);
+            if (key != null && knownKeys.contains(KnowledgeManager.get().getKnowledgeKey(seed, key))) {
+                current.set(id);
+            }
+        }
+
+        if (dictionary != listDictionary) {
+            listDictionary = dictionary;
+            sortedIds = IntStream.range(0, keys.size())
+                    .filter(id -> dictionary.getSettings(id) != null)
+                    .boxed()
+                    .sorted((a, b) -> keys.get(a).compareTo(keys.get(b)))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            craftable = current;
+            previousCraftable = null;
+            previousListVersion = -1;
+            listVersion = LIST_VERSIONS.incrementAndGet();
+        } else if (!current.equals(craftable)) {
+            previousCraftable = craftable;
+            previousListVersion = listVersion;
+            craftable = current;
+            listVersion = LIST_VERSIONS.incrementAndGet();
         }
-        return dimlets;
     }
 
-    @ServerCommand(type = DimletClientHelper.DimletWithInfo.class, serializer = DimletClientHelper.DimletWithInfo.Serializer.class)
-    public static final ListCommand<?, ?> CMD_GETDIMLETS = ListCommand.<WorkbenchTileEntity, DimletClientHelper.DimletWithInfo>create("rftoolsdim.workbench.getdimlets",
-            (te, player, params) -> te.getDimlets(),
-            (te, player, params, list) -> DimletClientHelper.setDimletsOnGui(list));
+    /// Get the dimlets that match a query (in sorted order). The result for the last query is kept until
+    /// the query or the version of the list changes so that getting the next page doesn't filter again
+    private int[] getMatchingIds(DimletListQuery query) {
+        if (matchingIds == null || matchingVersion != listVersion || !query.equals(matchingQuery)) {
+            DimletDictionary dictionary = listDictionary;
+            matchingIds = Arrays.stream(sortedIds)
+                    .filter(id -> (query.isAll() || craftable.get(id)) && query.matches(dictionary.getKey(id), dictionary.getSettings(id)))
+                    .toArray();
+            matchingQuery = query;
+            matchingVersion = listVersion;
+        }
+        return matchingIds;
+    }
+
+    /// Get a page of the dimlets that match the query. If the client has the current version of the list only
+    /// an 'unchanged' reply is sent. If the client has the version before that and the query also shows dimlets
+    /// that can't be crafted, only the dimlets of which the craftable flag changed are sent (the rows of the
+    /// client stay the same in that case)
+    public PacketDimletList getDimletList(int queryId, DimletListQuery query, int offset, long clientVersion) {
+        updateListState();
+        DimletDictionary dictionary = listDictionary;
+        if (clientVersion == listVersion) {
+            return PacketDimletList.unchanged(queryId, listVersion);
+        }
+
+        if (clientVersion == previousListVersion && previousCraftable != null && query.isAll()) {
+            BitSet changed = (BitSet) craftable.clone();
+            changed.xor(previousCraftable);
+            List<Integer> ids = new ArrayList<>();
+            for (int id = changed.nextSetBit(0) ; id >= 0 ; id = changed.nextSetBit(id + 1)) {
+                DimletSettings settings = dictionary.getSettings(id);
+                if (settings != null && query.matches(dictionary.getKey(id), settings)) {
+                    ids.add(id);
+                }
+            }
+            return createDimletList(queryId, PacketDimletList.DELTA, 0, 0, ids.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        int[] matching = getMatchingIds(query);
+        int from = Math.min(offset, matching.length);
+        int to = Math.min(offset + LIST_PAGE_SIZE, matching.length);
+        return createDimletList(queryId, PacketDimletList.FULL, matching.length, from, Arrays.copyOfRange(matching, from, to));
+    }
+
+    private PacketDimletList createDimletList(int queryId, int mode, int total, int offset, int[] ids) {
+        BitSet flags = new BitSet(ids.length);
+        for (int i = 0 ; i < ids.length ; i++) {
+            flags.set(i, craftable.get(ids[i]));
+        }
+        return new PacketDimletList(queryId, mode, listVersion, total, offset, ids, flags);
+    }
 }
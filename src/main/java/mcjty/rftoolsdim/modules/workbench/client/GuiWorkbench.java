@@ -11,16 +11,19 @@ import mcjty.lib.gui.Window;
 import mcjty.lib.gui.events.SelectionEvent;
 import mcjty.lib.gui.layout.HorizontalAlignment;
 import mcjty.lib.gui.widgets.*;
-import mcjty.lib.network.PacketGetListFromServer;
 import mcjty.lib.typed.TypedMap;
 import mcjty.rftoolsbase.RFToolsBase;
 import mcjty.rftoolsdim.RFToolsDim;
 import mcjty.rftoolsdim.modules.dimlets.client.DimletClientHelper;
+import mcjty.rftoolsdim.modules.dimlets.client.DimletSearchIndex;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletTools;
+import mcjty.rftoolsdim.modules.knowledge.data.DimletPattern;
 import mcjty.rftoolsdim.modules.knowledge.data.KnowledgeManager;
 import mcjty.rftoolsdim.modules.workbench.WorkbenchModule;
 import mcjty.rftoolsdim.modules.workbench.blocks.WorkbenchTileEntity;
+import mcjty.rftoolsdim.modules.workbench.network.DimletListQuery;
+import mcjty.rftoolsdim.modules.workbench.network.PacketRequestDimletList;
 import mcjty.rftoolsdim.setup.RFToolsDimMessages;
 import net.minecraft.client.Minecraft;
 import net.minecraft.entity.player.PlayerInventory;
@@ -29,6 +32,7 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.util.ResourceLocation;
 
 import javax.annotation.Nonnull;
+import java.util.Arrays;
 
 import static mcjty.lib.gui.widgets.Widgets.*;
 import static mcjty.rftoolsdim.modules.workbench.blocks.WorkbenchTileEntity.PARAM_ID;
@@ -47,7 +51,56 @@ public class GuiWorkbench extends GenericGuiContainer<WorkbenchTileEntity, Gener
     private ToggleButton allFilter;
     private long dimletListAge = -1;
 
-    private static String[] pattern = null;
+    // How often the visible page is checked for changes, how long to wait after a keystroke before the
+    // new search text is sent to the server and how long to wait for a reply before asking again
+    private static final long REFRESH_TIME = 1000;
+    private static final long SEARCH_DELAY = 250;
+    private static final long REQUEST_TIMEOUT = 5000;
+    private DimletListQuery query = null;
+    private int queryId = -1;
+    private String resultSearch = null; // The search text of the results we have
+    private long requestAge = -1;       // The age of the client list when the last request was sent
+    private long requestTime = 0;
+    private long lastRefresh = 0;
+    private long searchTime = 0;        // When the search text last changed
+
+    // Only the visible rows of the list have a widget. The rows are the rows of the results from the server
+    // (which are only received for the pages that are shown). While the results for a new search text aren't
+    // there yet 'localRows' are the rows we already have that match the new search text
+    private static final int VISIBLE_ROWS = 8;
+    private static final int LIST_X = 122;
+    private static final int LIST_Y = 22;
+    private static final int LIST_WIDTH = 120;
+    private static final int LIST_HEIGHT = 132;
+    private int[] localRows = null;
+    private int firstRow = 0;
+    private DimletKey selectedDimlet = null;
+    private String filter = "";
+
+    private final Scrollable scroller = new Scrollable() {
+        @Override
+        public int getMaximum() {
+            return getRowCount();
+        }
+
+        @Override
+        public int getCountSelected() {
+            return VISIBLE_ROWS;
+        }
+
+        @Override
+        public int getFirstSelected() {
+            return firstRow;
+        }
+
+        @Override
+        public void setFirstSelected(int first) {
+            firstRow = Math.max(0, Math.min(first, getRowCount() - VISIBLE_ROWS));
+            fillVisibleRows();
+        }
+    };
+
+    private static DimletPattern pattern = null;
 
     public GuiWorkbench(WorkbenchTileEntity tileEntity, GenericContainer container, PlayerInventory inventory) {
         super(tileEntity, container, inventory, WorkbenchModule.WORKBENCH.get().getManualEntry());
@@ -62,9 +115,13 @@ public class GuiWorkbench extends GenericGuiContainer<WorkbenchTileEntity, Gener
         super.init();
 
         searchBar = textfield(122, 6, 123, 14).event(this::search);
-        itemList = list(122, 22, 120, 132).name("widgets").event(new SelectionEvent() {
+        itemList = list(LIST_X, LIST_Y, LIST_WIDTH, LIST_HEIGHT).name("widgets").event(new SelectionEvent() {
             @Override
             public void select(int index) {
+                Object userObject = itemList.getChild(index).getUserObject();
+                if (userObject instanceof DimletClientHelper.DimletWithInfo) {
+                    selectedDimlet = ((DimletClientHelper.DimletWithInfo) userObject).getDimlet();
+                }
                 hilightPattern();
             }
 
@@ -77,7 +134,7 @@ public class GuiWorkbench extends GenericGuiContainer<WorkbenchTileEntity, Gener
                 }
             }
         });
-        Slider slider = slider(243, 22, 8, 132).scrollableName("widgets");
+        Slider slider = slider(243, 22, 8, 132).scrollable(scroller);
 
         Button createButton = button(210, 178, 40, 18, "Create").event(this::createDimlet);
         allFilter = new ToggleButton().hint(210, 158, 40, 18).text("All").event(this::toggleAll);
@@ -87,8 +144,56 @@ public class GuiWorkbench extends GenericGuiContainer<WorkbenchTileEntity, Gener
 
         window = new Window(this, toplevel);
         dimletListAge = -1;
+        filter = "";
+        resultSearch = null;
+        DimletClientHelper.resetDimletList();
+        newQuery();
+    }
 
-        RFToolsDimMessages.INSTANCE.sendToServer(new PacketGetListFromServer(tileEntity.getBlockPos(), WorkbenchTileEntity.CMD_GETDIMLETS.getName()));
+    private void newQuery() {
+        // Type and rarity can't be selected in this GUI yet
+        query = new DimletListQuery(filter, DimletListQuery.ALL_TYPES, DimletListQuery.ALL_RARITIES, allFilter.isPressed());
+        queryId = DimletClientHelper.newDimletListQuery();
+        firstRow = 0;
+        requestDimlets(0, -1);
+    }
+
+    private void requestDimlets(int offset, long version) {
+        requestAge = DimletClientHelper.dimletListAge;
+        requestTime = System.currentTimeMillis();
+        RFToolsDimMessages.INSTANCE.sendToServer(new PacketRequestDimletList(tileEntity.getBlockPos(), queryId, query, offset, version));
+    }
+
+    /// Send the search text when the user stopped typing, get the visible pages we don't have yet and
+    /// check the visible page for changes once in a while
+    private void updateRequests() {
+        long now = System.currentTimeMillis();
+        if (!filter.equals(query.getSearch()) && now - searchTime > SEARCH_DELAY) {
+            newQuery();
+            return;
+        }
+        if (requestAge == DimletClientHelper.dimletListAge && now - requestTime < REQUEST_TIMEOUT) {
+            // Still waiting for an answer
+            return;
+        }
+        if (DimletClientHelper.dimletListResultQuery != queryId) {
+            requestDimlets(0, -1);
+            return;
+        }
+        if (localRows == null) {
+            int last = Math.min(firstRow + VISIBLE_ROWS, DimletClientHelper.dimletListTotal) - 1;
+            for (int page = firstRow / WorkbenchTileEntity.LIST_PAGE_SIZE ; page <= last / WorkbenchTileEntity.LIST_PAGE_SIZE ; page++) {
+                if (!DimletClientHelper.hasDimletPage(page)) {
+                    requestDimlets(page * WorkbenchTileEntity.LIST_PAGE_SIZE, -1);
+                    return;
+                }
+            }
+        }
+        if (now - lastRefresh > REFRESH_TIME) {
+            lastRefresh = now;
+            int offset = firstRow / WorkbenchTileEntity.LIST_PAGE_SIZE * WorkbenchTileEntity.LIST_PAGE_SIZE;
+            requestDimlets(offset, DimletClientHelper.dimletListVersion);
+        }
     }
 
     private void createDimlet() {
@@ -116,7 +221,7 @@ public class GuiWorkbench extends GenericGuiContainer<WorkbenchTileEntity, Gener
         }
     }
 
-    public static void setPattern(String[] pattern) {
+    public static void setPattern(DimletPattern pattern) {
         GuiWorkbench.pattern = pattern;
     }
 
@@ -133,12 +238,11 @@ public class GuiWorkbench extends GenericGuiContainer<WorkbenchTileEntity, Gener
             GlStateManager._disableBlend();
             RenderSystem.enableLighting();
 
-            for (int y = 0 ; y < pattern.length ; y++) {
-                String p = pattern[y];
-                for (int x = 0 ; x < p.length() ; x++) {
-                    ItemStack stack = KnowledgeManager.getPatternItem(p.charAt(x));
+            for (int y = 0 ; y < DimletPattern.PATTERN_DIM ; y++) {
+                for (int x = 0 ; x < DimletPattern.PATTERN_DIM ; x++) {
+                    ItemStack stack = KnowledgeManager.getPatternItem(pattern.get(x, y));
                     if (!stack.isEmpty()) {
-                        int slotIdx = WorkbenchTileEntity.SLOT_PATTERN + y * pattern.length + x;
+                        int slotIdx = WorkbenchTileEntity.SLOT_PATTERN + y * DimletPattern.PATTERN_DIM + x;
                         Slot slot = menu.getSlot(slotIdx);
                         if (!slot.hasItem()) {
                             itemRenderer.renderAndDecorateItem(stack, leftPos + slot.x, topPos + slot.y);
@@ -201,41 +305,83 @@ public class GuiWorkbench extends GenericGuiContainer<WorkbenchTileEntity, Gener
     }
 
     private void toggleAll() {
-        dimletListAge = -1;
+        newQuery();
     }
 
 
-    private void search(String filter) {
-        dimletListAge = -1;
+    private void search(String text) {
+        filter = text.toLowerCase();
+        searchTime = System.currentTimeMillis();
+        filterRows();
     }
 
     private void updateList() {
+        updateRequests();
         if (dimletListAge == DimletClientHelper.dimletListAge) {
             return;
         }
         dimletListAge = DimletClientHelper.dimletListAge;
 
-        itemList.removeChildren();
+        if (DimletClientHelper.dimletListResultQuery == queryId) {
+            resultSearch = query.getSearch();
+        }
+        filterRows();
+    }
+
+    private int getRowCount() {
+        return localRows != null ? localRows.length : DimletClientHelper.dimletListTotal;
+    }
 
-        String filter = searchBar.getText().toLowerCase();
-        DimletClientHelper.dimlets.stream()
-                .filter(key -> dimletMatches(filter, key))
-                .sorted()
-                .forEachOrdered(this::addItemToList);
+    // The results from the server are already sorted and filtered. Only until the results for a new search
+    // text arrive the rows we have are filtered here
+    private void filterRows() {
+        if (filter.equals(resultSearch)) {
+            localRows = null;
+        } else {
+            DimletSearchIndex index = DimletSearchIndex.get();
+            int typeMask = DimletSearchIndex.getMatchingTypes(filter);
+            int total = DimletClientHelper.dimletListTotal;
+            int[] matching = new int[total];
+            int cnt = 0;
+            for (int row = 0 ; row < total ; row++) {
+                DimletClientHelper.DimletWithInfo key = DimletClientHelper.getDimlet(row);
+                if (key != null && index.matches(key.getId(), filter, typeMask, query.getRarityMask())) {
+                    matching[cnt++] = row;
+                }
+            }
+            localRows = Arrays.copyOf(matching, cnt);
+        }
+        scroller.setFirstSelected(firstRow);
+    }
 
-        if (itemList.getFirstSelected() >= itemList.getChildCount()) {
-            itemList.setFirstSelected(0);
+    private void fillVisibleRows() {
+        itemList.removeChildren();
+        int selected = -1;
+        for (int i = 0 ; i < VISIBLE_ROWS && firstRow + i < getRowCount() ; i++) {
+            int row = localRows != null ? localRows[firstRow + i] : firstRow + i;
+            DimletClientHelper.DimletWithInfo key = DimletClientHelper.getDimlet(row);
+            if (key == null) {
+                // Not received yet (or unknown on the client). Keep the other rows in their place
+                itemList.children(positional().desiredWidth(113).desiredHeight(16));
+                continue;
+            }
+            addItemToList(key);
+            if (key.getDimlet().equals(selectedDimlet)) {
+                selected = i;
+            }
         }
+        itemList.setSelected(selected);
     }
 
-    private boolean dimletMatches(String filter, DimletClientHelper.DimletWithInfo key) {
-        if (allFilter.isPressed() || key.isCraftable()) {
-            DimletKey dimlet = key.getDimlet();
-            String readableName = DimletTools.getReadableName(dimlet);
-            return readableName.toLowerCase().contains(filter)
-                    || dimlet.getType().name().toLowerCase().contains(filter);
+    @Override
+    public boolean mouseScrolled(double x, double y, double amount) {
+        double lx = x - leftPos - LIST_X;
+        double ly = y - topPos - LIST_Y;
+        if (lx >= 0 && lx < LIST_WIDTH && ly >= 0 && ly < LIST_HEIGHT) {
+            scroller.setFirstSelected(firstRow - (int) Math.signum(amount));
+            return true;
         }
-        return false;
+        return super.mouseScrolled(x, y, amount);
     }
 
     private void addItemToList(DimletClientHelper.DimletWithInfo key) {
@@ -244,7 +390,7 @@ public class GuiWorkbench extends GenericGuiContainer<WorkbenchTileEntity, Gener
         BlockRender blockRender = new BlockRender().renderItem(DimletTools.getDimletStack(key.getDimlet())).hint(1, 0, 16, 16)
                 .userObject(key);
         panel.children(blockRender);
-        String displayName = DimletTools.getReadableName(key.getDimlet());
+        String displayName = DimletSearchIndex.get().getName(key.getId());
         AbstractWidget label = label(displayName).color(key.isCraftable() ? StyleConfig.colorTextInListNormal : StyleConfig.colorTextDisabled).horizontalAlignment(HorizontalAlignment.ALIGN_LEFT)
                 .hint(20, 0, 95, 16).userObject(key);
         panel.children(label);
@@ -0,0 +1,84 @@
+package mcjty.rftoolsdim.modules.workbench.network;
+
+import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletRarity;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletSettings;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletType;
+import net.minecraft.network.PacketBuffer;
+
+import java.util.Objects;
+
+/**
+ * The filter for the dimlet list of the workbench. The filtering is done on the server so that only
+ * the pages of the matching dimlets that the client shows have to be sent
+ */
+public class DimletListQuery {
+
+    public static final int ALL_TYPES = (1 << DimletType.values().length) - 1;
+    public static final int ALL_RARITIES = (1 << DimletRarity.values().length) - 1;
+
+    private final String search;
+    private final int typeMask;
+    private final int rarityMask;
+    private final boolean all;      // Also the dimlets that can't be crafted
+
+    public DimletListQuery(String search, int typeMask, int rarityMask, boolean all) {
+        this.search = search.toLowerCase();
+        this.typeMask = typeMask;
+        this.rarityMask = rarityMask;
+        this.all = all;
+    }
+
+    public DimletListQuery(PacketBuffer buf) {
+        search = buf.readUtf(256);
+        typeMask = buf.readVarInt();
+        rarityMask = buf.readVarInt();
+        all = buf.readBoolean();
+    }
+
+    public void toBytes(PacketBuffer buf) {
+        buf.writeUtf(search, 256);
+        buf.writeVarInt(typeMask);
+        buf.writeVarInt(rarityMask);
+        buf.writeBoolean(all);
+    }
+
+    public String getSearch() {
+        return search;
+    }
+
+    public int getRarityMask() {
+        return rarityMask;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    /// Test type, rarity and the search text (craftability is checked separately). The readable names are
+    /// translated on the client so on the server the search text is matched with the id of the dimlet
+    public boolean matches(DimletKey key, DimletSettings settings) {
+        if ((typeMask & (1 << key.getType().ordinal())) == 0) {
+            return false;
+        }
+        if ((rarityMask & (1 << settings.getRarity().ordinal())) == 0) {
+            return false;
+        }
+        return search.isEmpty()
+                || key.getKey().toLowerCase().replace('_', ' ').contains(search)
+                || key.getType().name().toLowerCase().contains(search);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DimletListQuery that = (DimletListQuery) o;
+        return typeMask == that.typeMask && rarityMask == that.rarityMask && all == that.all && Objects.equals(search, that.search);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(search, typeMask, rarityMask, all);
+    }
+}
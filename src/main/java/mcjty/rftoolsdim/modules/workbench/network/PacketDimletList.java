@@ -0,0 +1,64 @@
+package mcjty.rftoolsdim.modules.workbench.network;
+
+import mcjty.rftoolsdim.modules.dimlets.client.DimletClientHelper;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+import java.util.BitSet;
+import java.util.function.Supplier;
+
+// Server sends (part of) the dimlet list of a workbench. Dimlets are sent as their numeric id
+public class PacketDimletList {
+
+    public static final int FULL = 0;         // A page of the dimlets that match the query
+    public static final int DELTA = 1;        // Only the dimlets that changed since the version of the client
+    public static final int UNCHANGED = 2;    // The client already has this version
+
+    private final int query;        // The id of the query this is a reply to
+    private final int mode;
+    private final long version;
+    private final int total;        // Number of matching dimlets (only for FULL)
+    private final int offset;
+    private final int[] ids;
+    private final BitSet craftable; // Index is the index in 'ids'
+
+    public PacketDimletList(int query, int mode, long version, int total, int offset, int[] ids, BitSet craftable) {
+        this.query = query;
+        this.mode = mode;
+        this.version = version;
+        this.total = total;
+        this.offset = offset;
+        this.ids = ids;
+        this.craftable = craftable;
+    }
+
+    public static PacketDimletList unchanged(int query, long version) {
+        return new PacketDimletList(query, UNCHANGED, version, 0, 0, new int[0], new BitSet());
+    }
+
+    public PacketDimletList(PacketBuffer buf) {
+        query = buf.readVarInt();
+        mode = buf.readByte();
+        version = buf.readLong();
+        total = buf.readVarInt();
+        offset = buf.readVarInt();
+        ids = buf.readVarIntArray();
+        craftable = BitSet.valueOf(buf.readLongArray(null));
+    }
+
+    public void toBytes(PacketBuffer buf) {
+        buf.writeVarInt(query);
+        buf.writeByte(mode);
+        buf.writeLong(version);
+        buf.writeVarInt(total);
+        buf.writeVarInt(offset);
+        buf.writeVarIntArray(ids);
+        buf.writeLongArray(craftable.toLongArray());
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> supplier) {
+        NetworkEvent.Context ctx = supplier.get();
+        ctx.enqueueWork(() -> DimletClientHelper.handleDimletList(query, mode, version, total, offset, ids, craftable));
+        ctx.setPacketHandled(true);
+    }
+}
@@ -1,5 +1,6 @@
 package mcjty.rftoolsdim.modules.workbench.network;
 
+import mcjty.rftoolsdim.modules.knowledge.data.DimletPattern;
 import mcjty.rftoolsdim.modules.workbench.client.GuiWorkbench;
 import net.minecraft.network.PacketBuffer;
 import net.minecraftforge.fml.network.NetworkEvent;
@@ -8,25 +9,18 @@ import java.util.function.Supplier;
 
 public class PacketPatternToClient {
 
-    private final String[] pattern;
+    private final DimletPattern pattern;
 
-    public PacketPatternToClient(String[] pattern) {
+    public PacketPatternToClient(DimletPattern pattern) {
         this.pattern = pattern;
     }
 
     public PacketPatternToClient(PacketBuffer buf) {
-        int size = buf.readInt();
-        pattern = new String[size];
-        for (int i = 0 ; i < size ; i++) {
-            pattern[i] = buf.readUtf(32767);
-        }
+        pattern = new DimletPattern(buf);
     }
 
     public void toBytes(PacketBuffer buf) {
-        buf.writeInt(pattern.length);
-        for (String p : pattern) {
-            buf.writeUtf(p);
-        }
+        pattern.toBytes(buf);
     }
 
     public void handle(Supplier<NetworkEvent.Context> supplier) {
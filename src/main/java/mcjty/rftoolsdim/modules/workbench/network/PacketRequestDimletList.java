@@ -0,0 +1,65 @@
+package mcjty.rftoolsdim.modules.workbench.network;
+
+import mcjty.rftoolsdim.modules.workbench.blocks.WorkbenchTileEntity;
+import mcjty.rftoolsdim.setup.RFToolsDimMessages;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.vector.Vector3d;
+import net.minecraftforge.fml.network.NetworkEvent;
+import net.minecraftforge.fml.network.PacketDistributor;
+
+import java.util.function.Supplier;
+
+// Client asks for a page of the dimlets of a workbench that match a query. 'version' is the version of the
+// list the client already has (-1 if it doesn't have this page) so that the server can send only the changes.
+// 'queryId' is sent back so that the client can ignore replies to an older query
+public class PacketRequestDimletList {
+
+    private final BlockPos pos;
+    private final int queryId;
+    private final DimletListQuery query;
+    private final int offset;
+    private final long version;
+
+    public PacketRequestDimletList(BlockPos pos, int queryId, DimletListQuery query, int offset, long version) {
+        this.pos = pos;
+        this.queryId = queryId;
+        this.query = query;
+        this.offset = offset;
+        this.version = version;
+    }
+
+    public PacketRequestDimletList(PacketBuffer buf) {
+        pos = buf.readBlockPos();
+        queryId = buf.readVarInt();
+        query = new DimletListQuery(buf);
+        offset = buf.readVarInt();
+        version = buf.readLong();
+    }
+
+    public void toBytes(PacketBuffer buf) {
+        buf.writeBlockPos(pos);
+        buf.writeVarInt(queryId);
+        query.toBytes(buf);
+        buf.writeVarInt(offset);
+        buf.writeLong(version);
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> supplier) {
+        NetworkEvent.Context ctx = supplier.get();
+        ctx.enqueueWork(() -> {
+            ServerPlayerEntity player = ctx.getSender();
+            if (player == null || player.distanceToSqr(Vector3d.atCenterOf(pos)) > 64 || !player.level.isLoaded(pos)) {
+                return;
+            }
+            TileEntity te = player.level.getBlockEntity(pos);
+            if (te instanceof WorkbenchTileEntity) {
+                PacketDimletList reply = ((WorkbenchTileEntity) te).getDimletList(queryId, query, offset, version);
+                RFToolsDimMessages.INSTANCE.send(PacketDistributor.PLAYER.with(() -> player), reply);
+            }
+        });
+        ctx.setPacketHandled(true);
+    }
+}
@@ -3,6 +3,7 @@ package mcjty.rftoolsdim.setup;
 
 import mcjty.lib.modules.Modules;
 import mcjty.rftoolsdim.dimension.DimensionConfig;
+import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptorCache;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.config.ModConfig;
@@ -34,6 +35,21 @@ public class Config {
         ModLoadingContext.get().registerConfig(ModConfig.Type.SERVER, SERVER_CONFIG);
     }
 
+    public static void onLoad(ModConfig.Loading event) {
+        configChanged(event.getConfig());
+    }
+
+    public static void onReload(ModConfig.Reloading event) {
+        configChanged(event.getConfig());
+    }
+
+    private static void configChanged(ModConfig config) {
+        if (config.getSpec() == SERVER_CONFIG) {
+            // Compiled descriptors depend on the config (costs)
+            CompiledDescriptorCache.clear();
+        }
+    }
+
     private static void setupGeneralConfig() {
         SERVER_BUILDER.comment("General settings").push(CATEGORY_GENERAL);
         CLIENT_BUILDER.comment("General settings").push(CATEGORY_GENERAL);
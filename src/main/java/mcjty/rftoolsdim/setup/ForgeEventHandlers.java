@@ -2,33 +2,45 @@ package mcjty.rftoolsdim.setup;
 
 import mcjty.rftoolsdim.RFToolsDim;
 import mcjty.rftoolsdim.dimension.data.DimensionData;
+import mcjty.rftoolsdim.dimension.data.DimensionDeletionManager;
 import mcjty.rftoolsdim.dimension.data.DimensionManager;
 import mcjty.rftoolsdim.dimension.data.PersistantDimensionManager;
 import mcjty.rftoolsdim.dimension.descriptor.CompiledDescriptor;
 import mcjty.rftoolsdim.dimension.features.RFTFeature;
+import mcjty.rftoolsdim.dimension.power.FreezeHandler;
 import mcjty.rftoolsdim.dimension.power.PowerHandler;
 import mcjty.rftoolsdim.dimension.terraintypes.AttributeType;
+import mcjty.rftoolsdim.dimension.tools.ArrivalPreloader;
+import mcjty.rftoolsdim.dimension.tools.DimensionHelper;
+import mcjty.rftoolsdim.dimension.tools.WorldGenExecutor;
 import mcjty.rftoolsdim.modules.blob.entities.DimensionalBlobEntity;
 import mcjty.rftoolsdim.modules.blob.tools.Spawner;
 import mcjty.rftoolsdim.modules.dimlets.DimletConfig;
 import mcjty.rftoolsdim.modules.dimlets.data.DimletDictionary;
-import mcjty.rftoolsdim.modules.dimlets.data.DimletKey;
-import mcjty.rftoolsdim.modules.dimlets.data.DimletSettings;
-import mcjty.rftoolsdim.modules.dimlets.network.PacketSendDimletPackages;
+import mcjty.rftoolsdim.modules.dimlets.data.DimletIdMapping;
+import mcjty.rftoolsdim.modules.dimlets.network.DimletSync;
+import mcjty.rftoolsdim.modules.knowledge.data.KnowledgeManager;
 import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.world.World;
 import net.minecraft.world.gen.GenerationStage;
 import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.event.TagsUpdatedEvent;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.living.LivingEvent;
+import net.minecraftforge.event.entity.living.LivingSpawnEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.event.world.BiomeLoadingEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.Event;
 import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.event.server.FMLServerStartedEvent;
-import net.minecraftforge.fml.network.PacketDistributor;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppingEvent;
+import net.minecraftforge.fml.server.ServerLifecycleHooks;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
 import java.util.Random;
 
 public class ForgeEventHandlers {
@@ -40,10 +52,20 @@ public class ForgeEventHandlers {
 
     private final Random random = new Random();
     private final PowerHandler powerHandler = new PowerHandler();
+    private final FreezeHandler freezeHandler = new FreezeHandler();
+    // True when the dimlet dictionary of the running server has been loaded
+    private boolean dictionaryLoaded = false;
 
     @SubscribeEvent
     public void onWorldTick(TickEvent.WorldTickEvent event) {
-        if (event.phase == TickEvent.Phase.START && !event.world.isClientSide) {
+        if (event.world.isClientSide) {
+            return;
+        }
+        if (event.phase == TickEvent.Phase.START) {
+            if (RFToolsDim.MODID.equals(event.world.dimension().location().getNamespace())) {
+                freezeHandler.startWorldTick((ServerWorld) event.world);
+            }
+
             // This should be in PotentialSpawns but that doesn't appear to be working correctly
             handleSpawning(event);
 
@@ -53,8 +75,43 @@ public class ForgeEventHandlers {
         }
     }
 
+    @SubscribeEvent
+    public void onLivingUpdate(LivingEvent.LivingUpdateEvent event) {
+        if (freezeHandler.shouldFreeze(event.getEntityLiving())) {
+            event.setCanceled(true);
+        }
+    }
+
+    @SubscribeEvent
+    public void onCheckSpawn(LivingSpawnEvent.CheckSpawn event) {
+        if (freezeHandler.isFrozen(event.getEntity().level)) {
+            event.setResult(Event.Result.DENY);
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerWorldLoad(WorldEvent.Load event) {
+        // RFTools dimensions that vanilla created at server start are moved to our worldgen executor
+        // and get a world info that can freeze random ticks
+        if (event.getWorld() instanceof ServerWorld) {
+            ServerWorld world = (ServerWorld) event.getWorld();
+            if (RFToolsDim.MODID.equals(world.dimension().location().getNamespace())) {
+                DimensionHelper.installWorldGenExecutor(world);
+                DimensionHelper.installWorldInfo(world);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+        if (event.getWorld() instanceof World) {
+            freezeHandler.unloadWorld((World) event.getWorld());
+            ArrivalPreloader.get().unloadWorld((World) event.getWorld());
+        }
+    }
+
     private void handleSpawning(TickEvent.WorldTickEvent event) {
-        if (RFToolsDim.MODID.equals(event.world.dimension().location().getNamespace())) {
+        if (RFToolsDim.MODID.equals(event.world.dimension().location().getNamespace()) && !freezeHandler.isFrozen(event.world)) {
             if (random.nextInt(20) == 10) {
                 ServerWorld serverWorld = (ServerWorld) event.world;
                 CompiledDescriptor compiledDescriptor = DimensionManager.get().getCompiledDescriptor(serverWorld);
@@ -76,30 +133,68 @@ public class ForgeEventHandlers {
     @SubscribeEvent
     public void onWorldLoad(FMLServerStartedEvent event) {
         RFToolsDim.setup.getLogger().info("Reading dimlet packages: ");
-        DimletDictionary.get().reset();
-        for (String file : DimletConfig.DIMLET_PACKAGES.get()) {
-            DimletDictionary.get().readPackage(file);
+        // Reserve the ids that were used before so that every dimlet keeps its id
+        DimletIdMapping mapping = DimletIdMapping.get(event.getServer().overworld());
+        long start = System.currentTimeMillis();
+        DimletDictionary.set(DimletDictionary.load(mapping.getKeys(), new ArrayList<>(DimletConfig.DIMLET_PACKAGES.get())));
+        RFToolsDim.setup.getLogger().info("Dimlet packages read in " + (System.currentTimeMillis() - start) + "ms");
+        mapping.update(DimletDictionary.get().getKeysById());
+        dictionaryLoaded = true;
+        KnowledgeManager.get().loadPatterns(event.getServer().overworld());
+        KnowledgeManager.get().rebuildKeys();
+        DimensionDeletionManager.get().resume(event.getServer());
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        // Deleting worlds is done at the end of the server tick so that we don't remove a world while worlds are ticking
+        if (event.phase == TickEvent.Phase.END) {
+            DimensionDeletionManager.get().tick(ServerLifecycleHooks.getCurrentServer());
+            ArrivalPreloader.get().tick();
         }
     }
 
+    @SubscribeEvent
+    public void onServerStopping(FMLServerStoppingEvent event) {
+        // This is before the worlds and level.dat are saved for the last time
+        ArrivalPreloader.get().flush();
+    }
+
+    @SubscribeEvent
+    public void onServerStopped(FMLServerStoppedEvent event) {
+        dictionaryLoaded = false;
+        freezeHandler.clear();
+        WorldGenExecutor.get().shutdown();
+        DimensionDeletionManager.get().clear();
+        ArrivalPreloader.get().clear();
+        DimletSync.clear();
+    }
+
     @SubscribeEvent
     public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
-        // Send over the dimlets to the client
-        RFToolsDim.setup.getLogger().info("Client logged in: sending dimlet packages");
-        Map<DimletKey, DimletSettings> collected = new HashMap<>();
-        DimletDictionary dictionary = DimletDictionary.get();
-        for (DimletKey key : dictionary.getDimlets()) {
-            collected.put(key, dictionary.getSettings(key));
-            if (collected.size() >= 100) {
-                RFToolsDimMessages.INSTANCE.send(PacketDistributor.PLAYER.with(() -> (ServerPlayerEntity) event.getPlayer()),
-                        new PacketSendDimletPackages(collected));
-                collected.clear();
-            }
+        // Send over the hash of the dimlets. The client will ask for the dimlets if it doesn't have them cached
+        DimletSync.sendHash((ServerPlayerEntity) event.getPlayer());
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.getPlayer() instanceof ServerPlayerEntity) {
+            DimletSync.forget((ServerPlayerEntity) event.getPlayer());
         }
-        if (!collected.isEmpty()) {
-            RFToolsDimMessages.INSTANCE.send(PacketDistributor.PLAYER.with(() -> (ServerPlayerEntity) event.getPlayer()),
-                    new PacketSendDimletPackages(collected));
+    }
+
+    @SubscribeEvent
+    public void onTagsUpdated(TagsUpdatedEvent event) {
+        // Fired when the tags are loaded (also after a datapack reload). The knowledge keys of blocks depend on them
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server == null) {
+            // On a client connected to a remote server the table is built again when it is needed
+            KnowledgeManager.get().invalidateKeys();
+        } else if (server.isSameThread() && dictionaryLoaded) {
+            KnowledgeManager.get().rebuildKeys();
         }
+        // Otherwise this is either the server starting (the table is built as soon as the dictionary is loaded)
+        // or the client thread of an integrated server (which shares the table with the server)
     }
 
     //    private MobSpawnInfo.Spawners blobEntry = null;
@@ -4,8 +4,12 @@ import mcjty.lib.network.PacketHandler;
 import mcjty.rftoolsdim.RFToolsDim;
 import mcjty.rftoolsdim.dimension.network.PackagePropageDataToClients;
 import mcjty.rftoolsdim.dimension.network.PacketDimensionUpdate;
+import mcjty.rftoolsdim.modules.dimlets.network.PacketDimletHash;
+import mcjty.rftoolsdim.modules.dimlets.network.PacketRequestDimlets;
 import mcjty.rftoolsdim.modules.dimlets.network.PacketSendDimletPackages;
+import mcjty.rftoolsdim.modules.workbench.network.PacketDimletList;
 import mcjty.rftoolsdim.modules.workbench.network.PacketPatternToClient;
+import mcjty.rftoolsdim.modules.workbench.network.PacketRequestDimletList;
 import net.minecraft.util.ResourceLocation;
 import net.minecraftforge.fml.network.NetworkRegistry;
 import net.minecraftforge.fml.network.simple.SimpleChannel;
@@ -31,6 +35,10 @@ public class RFToolsDimMessages {
         net.registerMessage(id(), PacketDimensionUpdate.class, PacketDimensionUpdate::toBytes, PacketDimensionUpdate::new, PacketDimensionUpdate::handle);
         net.registerMessage(id(), PacketSendDimletPackages.class, PacketSendDimletPackages::toBytes, PacketSendDimletPackages::new, PacketSendDimletPackages::handle);
         net.registerMessage(id(), PacketPatternToClient.class, PacketPatternToClient::toBytes, PacketPatternToClient::new, PacketPatternToClient::handle);
+        net.registerMessage(id(), PacketDimletHash.class, PacketDimletHash::toBytes, PacketDimletHash::new, PacketDimletHash::handle);
+        net.registerMessage(id(), PacketRequestDimlets.class, PacketRequestDimlets::toBytes, PacketRequestDimlets::new, PacketRequestDimlets::handle);
+        net.registerMessage(id(), PacketRequestDimletList.class, PacketRequestDimletList::toBytes, PacketRequestDimletList::new, PacketRequestDimletList::handle);
+        net.registerMessage(id(), PacketDimletList.class, PacketDimletList::toBytes, PacketDimletList::new, PacketDimletList::handle);
         net.registerMessage(id(), PackagePropageDataToClients.class, PackagePropageDataToClients::toBytes, PackagePropageDataToClients::new, PackagePropageDataToClients::handle);
 
         PacketHandler.registerStandardMessages(id(), net);
@@ -3,6 +3,7 @@ package mcjty.rftoolsdim.tools;
 import net.minecraftforge.fml.common.ObfuscationReflectionHelper;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -27,12 +28,40 @@ public class ReflectionHelper {
         return new MutableInstanceField<FIELDHOLDER, FIELDTYPE>(fieldHolderClass, fieldName);
     }
 
+    /**
+     * Gets a reflective field by its type instead of its name. This is for classes that have exactly one
+     * (non static) field of the given type. The field may be final
+     *
+     * @param fieldHolderClass The class of the object containing the field
+     * @param fieldType        The declared type of the field
+     * @return A getter and setter for the field
+     */
+    public static <FIELDHOLDER, FIELDTYPE> MutableInstanceField<FIELDHOLDER, FIELDTYPE> getInstanceFieldByType(Class<FIELDHOLDER> fieldHolderClass, Class<? super FIELDTYPE> fieldType) {
+        Field found = null;
+        for (Field field : fieldHolderClass.getDeclaredFields()) {
+            if (field.getType() == fieldType && !Modifier.isStatic(field.getModifiers())) {
+                if (found != null) {
+                    throw new IllegalStateException(fieldHolderClass.getName() + " has more than one field of type " + fieldType.getName());
+                }
+                found = field;
+            }
+        }
+        if (found == null) {
+            throw new IllegalStateException(fieldHolderClass.getName() + " has no field of type " + fieldType.getName());
+        }
+        found.setAccessible(true);
+        return new MutableInstanceField<>(found);
+    }
+
     public static class MutableInstanceField<FIELDHOLDER, FIELDTYPE> {
         private final Function<FIELDHOLDER, FIELDTYPE> getter;
         private final BiConsumer<FIELDHOLDER, FIELDTYPE> setter;
 
         private MutableInstanceField(Class<FIELDHOLDER> fieldHolderClass, String fieldName) {
-            Field field = ObfuscationReflectionHelper.findField(fieldHolderClass, fieldName);
+            this(ObfuscationReflectionHelper.findField(fieldHolderClass, fieldName));
+        }
+
+        private MutableInstanceField(Field field) {
             this.getter = getInstanceFieldGetter(field);
             this.setter = getInstanceFieldSetter(field);
         }